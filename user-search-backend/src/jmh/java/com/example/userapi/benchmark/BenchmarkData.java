@@ -0,0 +1,90 @@
+package com.example.userapi.benchmark;
+
+import com.example.userapi.UserapiApplication;
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.search.UserIndexer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic synthetic users and a seeded application context shared by the benchmarks
+public final class BenchmarkData {
+
+    static final String[] FIRST_NAMES = {
+            "Emily", "Michael", "Sophia", "James", "Emma", "Olivia", "Ava", "Isabella", "Liam", "Noah",
+            "Ethan", "Mason", "Lucas", "Logan", "Oliver", "Elijah", "Aiden", "Jackson", "Harper", "Evelyn",
+            "Abigail", "Ella", "Scarlett", "Grace", "Chloe", "Victoria", "Riley", "Aria", "Lily", "Aubrey",
+            "Zoey", "Penelope", "Layla", "Nora", "Hannah", "Addison", "Mila", "Stella", "Lucy", "Savannah",
+            "Benjamin", "Alexander", "Daniel", "Matthew", "Henry", "Joseph", "Samuel", "David", "Carter", "Wyatt"};
+
+    static final String[] LAST_NAMES = {
+            "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez", "Wilson",
+            "Anderson", "Taylor", "Thomas", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White",
+            "Harris", "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King",
+            "Wright", "Scott", "Torres", "Nguyen", "Hill", "Flores", "Green", "Adams", "Nelson", "Baker",
+            "Hall", "Rivera", "Campbell", "Mitchell", "Carter", "Roberts", "Gomez", "Phillips", "Evans", "Turner"};
+
+    static final String[] ROLES = {"admin", "moderator", "user"};
+    static final String[] STATES = {"California", "Texas", "New York", "Florida", "Washington", "Ohio", "Georgia"};
+    static final String[] DEPARTMENTS = {"Engineering", "Marketing", "Sales", "Support", "Legal", "Research"};
+
+    private BenchmarkData() {
+    }
+
+    public static List<User> users(long fromId, int count, long seed) {
+        List<User> users = new ArrayList<>(count);
+        for (long id = fromId; id < fromId + count; id++) {
+            // Seeded per id so any user can be regenerated on its own (e.g. to look it up by email)
+            Random random = new Random(seed * 1_000_003L + id);
+            String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            String username = (firstName.charAt(0) + lastName + id).toLowerCase();
+            users.add(new User(id, firstName, lastName, "", 18 + random.nextInt(60),
+                    random.nextBoolean() ? "female" : "male", username + "@x.example.com",
+                    "+1 555-" + (1000 + random.nextInt(9000)), username, "p" + random.nextInt(), "1990-1-1",
+                    "https://example.com/" + id + ".png", "O+", 150 + random.nextDouble() * 50, 50 + random.nextDouble() * 50,
+                    "Brown", new User.Hair("Black", "Straight"),
+                    new User.Address(random.nextInt(9999) + " Main Street", "Springfield",
+                            STATES[random.nextInt(STATES.length)], "CA", String.valueOf(10000 + random.nextInt(89999)),
+                            new User.Coordinates(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180),
+                            "United States"),
+                    new User.Bank("03/29", String.valueOf(4000000000000000L + id), "Visa", "USD", "DE" + id),
+                    new User.Company(DEPARTMENTS[random.nextInt(DEPARTMENTS.length)], "Acme", "Engineer"),
+                    "12-3456789", String.format("%03d-%02d-%04d", random.nextInt(1000), random.nextInt(100), id % 10000),
+                    "Mozilla/5.0", ROLES[random.nextInt(ROLES.length)]));
+        }
+        return users;
+    }
+
+    // Boots the application without a web server against a private in-memory database
+    public static ConfigurableApplicationContext start(String databaseName, String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "spring.r2dbc.url=r2dbc:h2:mem:///" + databaseName + ";DB_CLOSE_DELAY=-1",
+                "logging.level.root=WARN",
+                "logging.level.com.example.userapi=WARN"));
+        all.addAll(List.of(properties));
+        return new SpringApplicationBuilder(UserapiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(all.toArray(String[]::new))
+                .run();
+    }
+
+    // Writes count users through the batched upsert path and indexes them
+    public static void seed(ConfigurableApplicationContext context, int count) {
+        UserRepository repository = context.getBean(UserRepository.class);
+        UserIndexer indexer = context.getBean(UserIndexer.class);
+        int chunk = 10_000;
+        Flux.range(0, (count + chunk - 1) / chunk)
+                .concatMap(i -> {
+                    List<User> batch = users(1L + (long) i * chunk, Math.min(chunk, count - i * chunk), 42);
+                    return repository.upsertAll(batch).doOnSuccess(ignored -> indexer.indexAll(batch));
+                })
+                .blockLast();
+    }
+}
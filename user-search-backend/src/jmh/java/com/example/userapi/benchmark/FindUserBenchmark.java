@@ -0,0 +1,83 @@
+package com.example.userapi.benchmark;
+
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// findUserByIdOrEmail through the lookup cache against the uncached repository calls it replaces.
+// Keys are drawn uniformly from a hot set that fits in the cache.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class FindUserBenchmark {
+
+    @Param({"100000"})
+    public int users;
+
+    @Param({"10000"})
+    public int hotKeys;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private UserRepository userRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.start("find-" + users);
+        BenchmarkData.seed(context, users);
+        userService = context.getBean(UserService.class);
+        userRepository = context.getBean(UserRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object findByIdCached() {
+        return userService.findUserByIdOrEmail(randomId(), null).block();
+    }
+
+    @Benchmark
+    public Object findByEmailCached() {
+        return userService.findUserByIdOrEmail(null, email(randomId())).block();
+    }
+
+    @Benchmark
+    public Object findByIdRepository() {
+        return userRepository.findById(randomId()).block();
+    }
+
+    @Benchmark
+    public Object findByEmailRepository() {
+        return userRepository.findByEmail(email(randomId())).block();
+    }
+
+    private long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(hotKeys);
+    }
+
+    private static String email(long id) {
+        return BenchmarkData.users(id, 1, 42).get(0).getEmail();
+    }
+}
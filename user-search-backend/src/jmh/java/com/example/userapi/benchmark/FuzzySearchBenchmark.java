@@ -0,0 +1,60 @@
+package com.example.userapi.benchmark;
+
+import com.example.userapi.model.User;
+import com.example.userapi.search.FuzzyIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// FuzzyIndex.search (top 20) over seeded datasets, without the database. The latency budget is 1 ms per call at
+// 1M users for every case. "typo" is one transposition away from a first name, "twoWords" needs a first name and a
+// last name with one typo each, "miss" matches nothing within two edits.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class FuzzySearchBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    private FuzzyIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new FuzzyIndex();
+        for (long from = 1; from <= users; from += 10_000) {
+            for (User user : BenchmarkData.users(from, (int) Math.min(10_000, users - from + 1), 42)) {
+                index.index(user);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object typo() {
+        return index.search("svaannah", 2, 20);
+    }
+
+    @Benchmark
+    public Object twoWords() {
+        return index.search("savanah jonson", 1, 20);
+    }
+
+    @Benchmark
+    public Object miss() {
+        return index.search("qqqqqqqq", 2, 20);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.userapi.benchmark;
+
+import com.example.userapi.model.User;
+import com.example.userapi.search.GeoIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// GeoIndex queries over seeded datasets (coordinates spread over the whole globe), without the database. The latency
+// budget is 1 ms per call at 1M users. "near" is a 100 km radius capped at 100 users, "wideNear" a 1000 km radius
+// capped at 100 users, "nearest" the 10 nearest users and "nearestPole" the same near the north pole, where grid
+// cells are narrowest.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class GeoBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    private GeoIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new GeoIndex();
+        for (long from = 1; from <= users; from += 10_000) {
+            for (User user : BenchmarkData.users(from, (int) Math.min(10_000, users - from + 1), 42)) {
+                index.index(user);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object near() {
+        return index.within(37.7749, -122.4194, 100, 100);
+    }
+
+    @Benchmark
+    public Object wideNear() {
+        return index.within(37.7749, -122.4194, 1000, 100);
+    }
+
+    @Benchmark
+    public Object nearest() {
+        return index.nearest(37.7749, -122.4194, 10);
+    }
+
+    @Benchmark
+    public Object nearestPole() {
+        return index.nearest(89.9, 10, 10);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.userapi.benchmark;
+
+import com.example.userapi.importer.UserJsonStreamParser;
+import com.example.userapi.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Parsing one page of the import source: the streaming token parser fed in network-sized chunks against the
+// previous String -> readTree -> toString -> readValue path
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportParseBenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"100", "1000"})
+    public int pageSize;
+
+    private ObjectMapper objectMapper;
+    private byte[] document;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<User> users = BenchmarkData.users(1, pageSize, 42);
+        document = objectMapper.writeValueAsBytes(Map.of("users", users, "total", pageSize, "skip", 0, "limit", pageSize));
+    }
+
+    @Benchmark
+    public int streaming() throws IOException {
+        UserJsonStreamParser parser = new UserJsonStreamParser(objectMapper);
+        int count = 0;
+        for (int offset = 0; offset < document.length; offset += CHUNK_SIZE) {
+            count += parser.feed(document, offset, Math.min(CHUNK_SIZE, document.length - offset)).size();
+        }
+        return count + parser.endOfInput().size();
+    }
+
+    @Benchmark
+    public int treeThenList() throws IOException {
+        String json = new String(document, StandardCharsets.UTF_8);
+        List<User> users = objectMapper.readValue(objectMapper.readTree(json).get("users").toString(),
+                new TypeReference<List<User>>() {});
+        return users.size();
+    }
+}
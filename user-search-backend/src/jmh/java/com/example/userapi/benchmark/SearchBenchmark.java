@@ -0,0 +1,63 @@
+package com.example.userapi.benchmark;
+
+import com.example.userapi.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// UserService.searchUsers end to end (index lookup + fetch of the matching rows) over seeded datasets.
+// "selective" matches a single user through the SSN, "name" matches one first name/last name combination.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class SearchBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.start("search-" + users);
+        BenchmarkData.seed(context, users);
+        userService = context.getBean(UserService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object selective() {
+        return userService.searchUsers("-4242").collectList().block();
+    }
+
+    @Benchmark
+    public Object name() {
+        return userService.searchUsers("savannah").take(100).collectList().block();
+    }
+
+    @Benchmark
+    public Object page() {
+        return userService.searchUsersPage("johnson", null, "lastName", null, 50).block();
+    }
+}
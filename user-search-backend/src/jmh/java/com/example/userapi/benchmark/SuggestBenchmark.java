@@ -0,0 +1,59 @@
+package com.example.userapi.benchmark;
+
+import com.example.userapi.model.User;
+import com.example.userapi.search.SuggestIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// SuggestIndex.suggest (top 10) over seeded datasets, without the database. "broad" is a one-letter prefix matching
+// a large share of all terms, "narrow" a prefix that only a few names complete.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class SuggestBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int users;
+
+    private SuggestIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new SuggestIndex();
+        for (long from = 1; from <= users; from += 10_000) {
+            for (User user : BenchmarkData.users(from, (int) Math.min(10_000, users - from + 1), 42)) {
+                index.index(user);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object broad() {
+        return index.suggest("s", 10);
+    }
+
+    @Benchmark
+    public Object narrow() {
+        return index.suggest("savan", 10);
+    }
+
+    @Benchmark
+    public Object miss() {
+        return index.suggest("zzzq", 10);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.userapi.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-operation latency histograms (microseconds, 3 significant digits) and outcome counts. Latencies are measured
+// from the time a request was scheduled to be sent, not from when it was actually sent, so a stalled server shows
+// up in the percentiles instead of silently slowing the arrival rate down (coordinated omission).
+final class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    private static final class Stats {
+        final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final LongAdder rejected = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+
+    LatencyRecorder() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    // 2xx responses count towards the latencies, 429s as rejected (shed by admission control), anything else as error.
+    // A 2xx whose body reports a missing user or an empty search is an error too, as older servers answered those
+    // with 200
+    void record(Operation operation, int status, String body, long latencyNanos) {
+        Stats operationStats = stats.get(operation);
+        if (status >= 200 && status < 300 && !isNotFound(body)) {
+            operationStats.latencies.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS,
+                    TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        } else if (status == 429) {
+            operationStats.rejected.increment();
+        } else {
+            operationStats.errors.increment();
+        }
+    }
+
+    private static boolean isNotFound(String body) {
+        return body.startsWith("User not found") || body.startsWith("No users found");
+    }
+
+    // Requests that never got a response (connection failures, timeouts, or dropped by the generator)
+    void failed(Operation operation) {
+        stats.get(operation).errors.increment();
+    }
+
+    void reset() {
+        for (Stats operationStats : stats.values()) {
+            operationStats.latencies.reset();
+            operationStats.rejected.reset();
+            operationStats.errors.reset();
+        }
+    }
+
+    LoadTestReport report(LoadTestReport.Settings settings, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        Map<String, LoadTestReport.OperationReport> operations = new LinkedHashMap<>();
+        long completed = 0;
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Histogram latencies = entry.getValue().latencies;
+            long rejected = entry.getValue().rejected.sum();
+            long errors = entry.getValue().errors.sum();
+            long requests = latencies.getTotalCount() + rejected + errors;
+            if (requests == 0) {
+                continue;
+            }
+            completed += latencies.getTotalCount();
+            operations.put(entry.getKey().key(), new LoadTestReport.OperationReport(requests, rejected, errors,
+                    round(latencies.getTotalCount() / seconds),
+                    millis(latencies.getValueAtPercentile(50)),
+                    millis(latencies.getValueAtPercentile(99)),
+                    millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMaxValue())));
+        }
+        return new LoadTestReport(settings, round(completed / seconds), operations);
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
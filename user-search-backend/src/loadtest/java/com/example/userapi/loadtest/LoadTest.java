@@ -0,0 +1,175 @@
+package com.example.userapi.loadtest;
+
+import com.example.userapi.UserapiApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// End-to-end HTTP load test: boots UserapiApplication on a random port against a private in-memory database, imports
+// the seeded users from a local SourceStub, then sends a mix of search, find, list, update and delete requests at a
+// constant arrival rate (open model: requests are sent on schedule whether or not earlier ones have completed).
+// Prints p50/p99/p999 and throughput per operation, writes them to target/loadtest/results.json and exits with 1 when
+// they regress against the stored baseline.
+public final class LoadTest {
+
+    private static final Path RESULTS = Path.of("target", "loadtest", "results.json");
+    private static final double SLACK_MILLIS = 2.0;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        LoadTestReport report;
+        ExecutorService responses = Executors.newFixedThreadPool(4);
+        try (SourceStub source = SourceStub.start(options.users(), options.seed());
+             ConfigurableApplicationContext context = startApplication(source.uri())) {
+            URI baseUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(responses)
+                    .build();
+            importUsers(client, baseUri, options.users());
+
+            Workload workload = new Workload(baseUri, options.users(), options.mix());
+            LatencyRecorder recorder = new LatencyRecorder();
+            SplittableRandom random = new SplittableRandom(options.seed());
+            System.out.printf("Warming up for %d s at %d requests/s%n", options.warmup().toSeconds(), options.rate());
+            run(client, workload, recorder, random, options, options.warmup());
+            recorder.reset();
+            System.out.printf("Measuring for %d s at %d requests/s (%s)%n", options.duration().toSeconds(),
+                    options.rate(), options.mixDescription());
+            long elapsedNanos = run(client, workload, recorder, random, options, options.duration());
+            report = recorder.report(new LoadTestReport.Settings(options.users(), options.rate(),
+                    options.duration().toSeconds(), options.mixDescription()), elapsedNanos);
+        } finally {
+            responses.shutdownNow();
+        }
+
+        print(report);
+        Files.createDirectories(RESULTS.getParent());
+        mapper.writeValue(RESULTS.toFile(), report);
+        System.exit(compareWithBaseline(report, options, mapper));
+    }
+
+    // Passed as command line arguments, which (unlike default properties) take precedence over application.properties
+    private static ConfigurableApplicationContext startApplication(URI source) {
+        return new SpringApplicationBuilder(UserapiApplication.class).run(
+                "--server.port=0",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///loadtest;DB_CLOSE_DELAY=-1",
+                "--users.api.url=" + source,
+                "--users.import.page-size=1000",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.userapi=WARN");
+    }
+
+    private static void importUsers(HttpClient client, URI baseUri, int users) throws Exception {
+        long started = System.nanoTime();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(baseUri.resolve("/api/users/import"))
+                .timeout(Duration.ofMinutes(10))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200 || !response.body().contains("successfully")) {
+            throw new IllegalStateException("Import failed with " + response.statusCode() + ": " + response.body());
+        }
+        System.out.printf("Imported %d users in %d ms%n", users,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    // Sends rate requests per second for the given duration, then waits for the outstanding ones; returns the elapsed
+    // nanos. Each request is timed from its scheduled send time, and requests beyond maxOutstanding are dropped and
+    // counted as errors rather than queued without bound.
+    private static long run(HttpClient client, Workload workload, LatencyRecorder recorder, SplittableRandom random,
+                            LoadTestOptions options, Duration duration) throws InterruptedException {
+        AtomicInteger outstanding = new AtomicInteger();
+        long requests = duration.toSeconds() * options.rate();
+        long started = System.nanoTime();
+        for (long i = 0; i < requests; i++) {
+            long scheduled = started + i * 1_000_000_000L / options.rate();
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = workload.next(random);
+            if (outstanding.get() >= options.maxOutstanding()) {
+                recorder.failed(operation);
+                continue;
+            }
+            outstanding.incrementAndGet();
+            client.sendAsync(workload.request(operation, random), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        long latency = System.nanoTime() - scheduled;
+                        if (error != null) {
+                            recorder.failed(operation);
+                        } else {
+                            recorder.record(operation, response.statusCode(), response.body(), latency);
+                        }
+                        outstanding.decrementAndGet();
+                    });
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        return System.nanoTime() - started;
+    }
+
+    private static void print(LoadTestReport report) {
+        System.out.printf("%n%-8s %9s %9s %7s %10s %9s %9s %9s %9s%n", "op", "requests", "rejected", "errors",
+                "ok/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        report.operations().forEach((name, operation) -> System.out.printf(
+                "%-8s %9d %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n", name, operation.requests(), operation.rejected(),
+                operation.errors(), operation.throughput(), operation.p50Millis(), operation.p99Millis(),
+                operation.p999Millis(), operation.maxMillis()));
+        System.out.printf("Throughput: %.1f successful requests/s%n%n", report.throughput());
+    }
+
+    // Returns the exit code: 1 on a regression or a baseline recorded with other settings, 0 otherwise
+    private static int compareWithBaseline(LoadTestReport report, LoadTestOptions options, ObjectMapper mapper)
+            throws Exception {
+        Path baselinePath = options.baseline();
+        if (options.updateBaseline()) {
+            Files.createDirectories(baselinePath.toAbsolutePath().getParent());
+            mapper.writeValue(baselinePath.toFile(), report);
+            System.out.println("Baseline written to " + baselinePath);
+            return 0;
+        }
+        if (!Files.exists(baselinePath)) {
+            System.out.println("No baseline at " + baselinePath + "; record one with --update-baseline");
+            return 0;
+        }
+        LoadTestReport baseline = mapper.readValue(baselinePath.toFile(), LoadTestReport.class);
+        if (!baseline.settings().equals(report.settings())) {
+            System.out.println("The baseline was recorded with other settings: " + baseline.settings()
+                    + "; rerun with them or record a new baseline with --update-baseline");
+            return 1;
+        }
+        List<String> regressions = report.regressionsAgainst(baseline, options.tolerance(), SLACK_MILLIS);
+        if (regressions.isEmpty()) {
+            System.out.printf("No regression against %s (tolerance %.0f%%)%n", baselinePath,
+                    options.tolerance() * 100);
+            return 0;
+        }
+        System.out.printf("Regressions against %s (tolerance %.0f%%):%n", baselinePath, options.tolerance() * 100);
+        regressions.forEach(regression -> System.out.println("  " + regression));
+        return 1;
+    }
+}
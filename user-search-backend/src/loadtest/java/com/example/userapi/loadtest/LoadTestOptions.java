@@ -0,0 +1,69 @@
+package com.example.userapi.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Command line settings of a load test run, given as --name=value (and --update-baseline)
+record LoadTestOptions(int users, int rate, Duration warmup, Duration duration, Map<Operation, Integer> mix,
+                       long seed, int maxOutstanding, Path baseline, double tolerance, boolean updateBaseline) {
+
+    static final String DEFAULT_MIX = "search=60,find=25,list=8,update=5,delete=2";
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String[] parts = arg.substring(2).split("=", 2);
+            values.put(parts[0], parts.length == 2 ? parts[1] : "true");
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                Integer.parseInt(values.getOrDefault("users", "10000")),
+                Integer.parseInt(values.getOrDefault("rate", "25")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "20"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+                parseMix(values.getOrDefault("mix", DEFAULT_MIX)),
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                Integer.parseInt(values.getOrDefault("max-outstanding", "10000")),
+                Path.of(values.getOrDefault("baseline", "src/loadtest/baseline.json")),
+                Double.parseDouble(values.getOrDefault("tolerance", "1.0")),
+                Boolean.parseBoolean(values.getOrDefault("update-baseline", "false")));
+        if (options.users() < 100 || options.rate() < 1) {
+            throw new IllegalArgumentException("users must be at least 100 and rate at least 1");
+        }
+        return options;
+    }
+
+    // Parses a mix such as search=60,find=40 into relative weights per operation
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=", 2);
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in mix: " + entry);
+            }
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix needs at least one operation with a positive weight");
+        }
+        return weights;
+    }
+
+    String mixDescription() {
+        StringBuilder description = new StringBuilder();
+        mix.forEach((operation, weight) -> {
+            if (!description.isEmpty()) {
+                description.append(',');
+            }
+            description.append(operation.key()).append('=').append(weight);
+        });
+        return description.toString();
+    }
+}
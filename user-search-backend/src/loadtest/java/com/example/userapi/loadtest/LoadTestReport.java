@@ -0,0 +1,69 @@
+package com.example.userapi.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Outcome of a load test run; also the format of the stored baseline
+record LoadTestReport(Settings settings, double throughput, Map<String, OperationReport> operations) {
+
+    // A baseline only applies to runs with the same settings
+    record Settings(int users, int rate, long durationSeconds, String mix) {
+    }
+
+    record OperationReport(long requests, long rejected, long errors, double throughput,
+                           double p50Millis, double p99Millis, double p999Millis, double maxMillis) {
+
+        double rejectedRatio() {
+            return requests == 0 ? 0 : (double) rejected / requests;
+        }
+
+        double errorRatio() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+
+    // Latency percentiles may grow by tolerance (plus slackMillis, so sub-millisecond jitter does not count), total
+    // throughput may drop by tolerance, and the share of rejected or failed requests may grow by one percentage point.
+    // A percentile is only compared once an operation has enough requests for it not to be just its slowest one
+    // (100 for p99, 1000 for p999).
+    List<String> regressionsAgainst(LoadTestReport baseline, double tolerance, double slackMillis) {
+        List<String> regressions = new ArrayList<>();
+        if (throughput < baseline.throughput() * (1 - tolerance)) {
+            regressions.add(String.format("throughput %.1f/s is below the baseline %.1f/s", throughput,
+                    baseline.throughput()));
+        }
+        baseline.operations().forEach((name, expected) -> {
+            OperationReport actual = operations.get(name);
+            if (actual == null) {
+                regressions.add(name + ": no requests recorded");
+                return;
+            }
+            checkLatency(regressions, name, "p50", actual.p50Millis(), expected.p50Millis(), tolerance, slackMillis);
+            if (actual.requests() >= 100) {
+                checkLatency(regressions, name, "p99", actual.p99Millis(), expected.p99Millis(), tolerance, slackMillis);
+            }
+            if (actual.requests() >= 1000) {
+                checkLatency(regressions, name, "p999", actual.p999Millis(), expected.p999Millis(), tolerance,
+                        slackMillis);
+            }
+            if (actual.rejectedRatio() > expected.rejectedRatio() + 0.01) {
+                regressions.add(String.format("%s: %.2f%% rejected, baseline %.2f%%", name,
+                        actual.rejectedRatio() * 100, expected.rejectedRatio() * 100));
+            }
+            if (actual.errorRatio() > expected.errorRatio() + 0.01) {
+                regressions.add(String.format("%s: %.2f%% errors, baseline %.2f%%", name,
+                        actual.errorRatio() * 100, expected.errorRatio() * 100));
+            }
+        });
+        return regressions;
+    }
+
+    private static void checkLatency(List<String> regressions, String name, String percentile, double actual,
+                                     double expected, double tolerance, double slackMillis) {
+        if (actual > expected * (1 + tolerance) + slackMillis) {
+            regressions.add(String.format("%s: %s %.2f ms exceeds the baseline %.2f ms", name, percentile, actual,
+                    expected));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.userapi.loadtest;
+
+import java.util.Locale;
+
+// The kinds of requests a load test mixes
+enum Operation {
+    SEARCH, FIND, LIST, UPDATE, DELETE;
+
+    String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
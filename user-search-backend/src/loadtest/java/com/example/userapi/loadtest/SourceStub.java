@@ -0,0 +1,112 @@
+package com.example.userapi.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Local stand-in for the users API the application imports from, answering ?limit=&skip= with deterministic users
+// (ids 1..users) generated from the seed
+final class SourceStub implements AutoCloseable {
+
+    static final String[] FIRST_NAMES = {
+            "Emily", "Michael", "Sophia", "James", "Emma", "Olivia", "Liam", "Noah", "Ethan", "Mason",
+            "Lucas", "Harper", "Evelyn", "Grace", "Chloe", "Riley", "Nora", "Hannah", "Daniel", "Henry"};
+
+    static final String[] LAST_NAMES = {
+            "Johnson", "Williams", "Brown", "Garcia", "Miller", "Davis", "Martinez", "Wilson", "Anderson", "Taylor",
+            "Thomas", "Moore", "Martin", "Thompson", "White", "Harris", "Clark", "Lewis", "Walker", "Young"};
+
+    private static final String[] ROLES = {"admin", "moderator", "user"};
+    private static final String[] CITIES = {"Austin", "Denver", "Seattle", "Boston", "Chicago", "Phoenix"};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final int users;
+    private final long seed;
+
+    private SourceStub(int users, long seed) throws IOException {
+        this.users = users;
+        this.seed = seed;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/users", exchange -> {
+            Map<String, String> query = params(exchange.getRequestURI().getQuery());
+            int limit = Integer.parseInt(query.getOrDefault("limit", "100"));
+            int skip = Integer.parseInt(query.getOrDefault("skip", "0"));
+            byte[] body = mapper.writeValueAsBytes(page(skip, limit));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+    }
+
+    static SourceStub start(int users, long seed) throws IOException {
+        SourceStub stub = new SourceStub(users, seed);
+        stub.server.start();
+        return stub;
+    }
+
+    URI uri() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + "/users");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private Map<String, Object> page(int skip, int limit) {
+        List<Map<String, Object>> page = new ArrayList<>();
+        for (long id = skip + 1L; id <= Math.min(users, (long) skip + limit); id++) {
+            page.add(user(id));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("users", page);
+        body.put("total", users);
+        body.put("skip", skip);
+        body.put("limit", limit);
+        return body;
+    }
+
+    // Seeded per id, so the same run settings always import the same users
+    private Map<String, Object> user(long id) {
+        Random random = new Random(seed * 1_000_003L + id);
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        String username = (firstName.charAt(0) + lastName + id).toLowerCase();
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("id", id);
+        user.put("firstName", firstName);
+        user.put("lastName", lastName);
+        user.put("age", 18 + random.nextInt(60));
+        user.put("email", username + "@load.example.com");
+        user.put("username", username);
+        user.put("ssn", String.format("%03d-%02d-%04d", random.nextInt(1000), random.nextInt(100), id % 10000));
+        user.put("role", ROLES[random.nextInt(ROLES.length)]);
+        user.put("address", Map.of(
+                "city", CITIES[random.nextInt(CITIES.length)],
+                "coordinates", Map.of("lat", random.nextDouble() * 180 - 90, "lng", random.nextDouble() * 360 - 180)));
+        return user;
+    }
+
+    private static Map<String, String> params(String query) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                String[] parts = pair.split("=", 2);
+                params.put(parts[0], parts.length == 2 ? parts[1] : "");
+            }
+        }
+        return params;
+    }
+}
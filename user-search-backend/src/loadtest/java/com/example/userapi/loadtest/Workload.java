@@ -0,0 +1,89 @@
+package com.example.userapi.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Picks the next operation by the configured weights and builds its request. Finds and updates target the lower
+// half of the seeded ids, while deletes consume the upper half from the top down, so every delete hits a live user
+// and no find looks up a deleted one.
+final class Workload {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUri;
+    private final int liveUsers;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final AtomicLong nextDeleteId;
+
+    Workload(URI baseUri, int users, Map<Operation, Integer> mix) {
+        this.baseUri = baseUri;
+        this.liveUsers = users / 2;
+        this.nextDeleteId = new AtomicLong(users);
+        this.operations = mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    Operation next(SplittableRandom random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("Unreachable weight " + pick);
+    }
+
+    HttpRequest request(Operation operation, SplittableRandom random) {
+        return switch (operation) {
+            case SEARCH -> get("/api/users/search?limit=20&query="
+                    + URLEncoder.encode(searchQuery(random), StandardCharsets.UTF_8));
+            case FIND -> get("/api/users/find?id=" + liveId(random));
+            case LIST -> get("/api/users?limit=50&sort=lastName");
+            case UPDATE -> HttpRequest.newBuilder(baseUri.resolve("/api/users/" + liveId(random)))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"age\":" + (18 + random.nextInt(60)) + "}"))
+                    .build();
+            case DELETE -> HttpRequest.newBuilder(baseUri.resolve("/api/users/" + deleteId()))
+                    .timeout(REQUEST_TIMEOUT)
+                    .DELETE()
+                    .build();
+        };
+    }
+
+    // Whole first or last names, or their first three letters, as typed into a search box
+    private static String searchQuery(SplittableRandom random) {
+        String[] names = random.nextBoolean() ? SourceStub.FIRST_NAMES : SourceStub.LAST_NAMES;
+        String name = names[random.nextInt(names.length)];
+        return random.nextInt(4) == 0 ? name.substring(0, 3) : name;
+    }
+
+    private long liveId(SplittableRandom random) {
+        return 1 + random.nextInt(liveUsers);
+    }
+
+    // Past the upper half the ids no longer exist, and those deletes are answered with 404 and count as errors
+    private long deleteId() {
+        return nextDeleteId.getAndDecrement();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.userapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Per-endpoint concurrency limits: /search and /find each get their own ConcurrencyLimiter, so a search storm queues
+// and is shed on its own instead of starving lookups or the connection pool. Shed requests get 429 with Retry-After.
+// A permit is held until the response has been written, including streamed responses.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AdmissionControlFilter implements WebFilter {
+
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private final long retryAfterSeconds;
+
+    private record Endpoint(ConcurrencyLimiter limiter, Counter rejected) {
+    }
+
+    public AdmissionControlFilter(MeterRegistry registry,
+                                  @Value("${users.admission.search.max-concurrent:32}") int searchConcurrency,
+                                  @Value("${users.admission.search.max-queued:200}") int searchQueue,
+                                  @Value("${users.admission.find.max-concurrent:64}") int findConcurrency,
+                                  @Value("${users.admission.find.max-queued:500}") int findQueue,
+                                  @Value("${users.admission.max-wait:1s}") Duration maxWait,
+                                  @Value("${users.admission.retry-after:1s}") Duration retryAfter) {
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+        register(registry, "search", "/api/users/search", new ConcurrencyLimiter(searchConcurrency, searchQueue, maxWait));
+        register(registry, "find", "/api/users/find", new ConcurrencyLimiter(findConcurrency, findQueue, maxWait));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Endpoint endpoint = endpoints.get(exchange.getRequest().getPath().pathWithinApplication().value());
+        if (endpoint == null) {
+            return chain.filter(exchange);
+        }
+        ConcurrencyLimiter limiter = endpoint.limiter();
+        return Mono.usingWhen(limiter.acquire().thenReturn(limiter),
+                        held -> chain.filter(exchange),
+                        held -> Mono.fromRunnable(held::release))
+                .onErrorResume(ConcurrencyLimiter.RejectedException.class, e -> {
+                    endpoint.rejected().increment();
+                    exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                    exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+                    return exchange.getResponse().setComplete();
+                });
+    }
+
+    private void register(MeterRegistry registry, String name, String path, ConcurrencyLimiter limiter) {
+        Gauge.builder("users.admission.in-flight", limiter, ConcurrencyLimiter::inFlight)
+                .description("Requests holding a permit")
+                .tag("endpoint", name)
+                .register(registry);
+        Gauge.builder("users.admission.queued", limiter, ConcurrencyLimiter::queued)
+                .description("Requests waiting for a permit")
+                .tag("endpoint", name)
+                .register(registry);
+        Counter rejected = Counter.builder("users.admission.rejected")
+                .description("Requests shed with 429")
+                .tag("endpoint", name)
+                .register(registry);
+        endpoints.put(path, new Endpoint(limiter, rejected));
+    }
+}
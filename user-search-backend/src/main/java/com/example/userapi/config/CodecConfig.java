@@ -0,0 +1,92 @@
+package com.example.userapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+// Binary Jackson codecs next to JSON: Smile (application/x-jackson-smile) and CBOR (application/cbor), chosen through
+// Accept / Content-Type. Both copy the application ObjectMapper, so they apply the same configuration as JSON. The
+// customizer is applied to the server codecs and to the WebClient builder.
+@Configuration
+public class CodecConfig {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    @Bean
+    public CodecCustomizer binaryJacksonCodecs(ObjectMapper objectMapper) {
+        ObjectMapper smileMapper = objectMapper.copyWith(new SmileFactory());
+        ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+        // The codecs fall back to the JSON media types when none are given
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new CollectingSmileEncoder(smileMapper));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper, APPLICATION_SMILE));
+            // Custom writers come before the default ones, so JSON is repeated ahead of CBOR to stay the response
+            // format of requests without a specific Accept
+            configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+            configurer.customCodecs().register(new CollectingCborEncoder(cborMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+        };
+    }
+
+    // A stream of users is collected and written as one array: Jackson2CborEncoder only encodes single values, and
+    // Jackson2SmileEncoder joins the elements of a stream with JSON brackets and commas
+    private static Flux<DataBuffer> encodeCollected(AbstractJackson2Encoder encoder, Publisher<?> inputStream,
+                                                    DataBufferFactory bufferFactory, ResolvableType elementType,
+                                                    MimeType mimeType, Map<String, Object> hints) {
+        if (inputStream instanceof Mono<?> mono) {
+            return mono.map(value -> encoder.encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+        }
+        ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+        return Flux.from(inputStream)
+                .collectList()
+                .map(values -> encoder.encodeValue(values, bufferFactory, listType, mimeType, hints))
+                .flux();
+    }
+
+    static class CollectingSmileEncoder extends Jackson2SmileEncoder {
+
+        CollectingSmileEncoder(ObjectMapper mapper) {
+            super(mapper, APPLICATION_SMILE);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+            return encodeCollected(this, inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+
+    static class CollectingCborEncoder extends Jackson2CborEncoder {
+
+        CollectingCborEncoder(ObjectMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+            return encodeCollected(this, inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.userapi.config;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Non-blocking semaphore with a bounded FIFO queue: up to maxConcurrent permits are held at a time, up to maxQueued
+// callers wait for one (at most maxWait each), and everyone beyond that is rejected straight away
+public class ConcurrencyLimiter {
+
+    // Signals that a caller was shed, either because the queue was full or because it waited too long
+    public static class RejectedException extends RuntimeException {
+
+        RejectedException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration maxWait;
+    private final ArrayDeque<Waiter> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    public ConcurrencyLimiter(int maxConcurrent, int maxQueued, Duration maxWait) {
+        if (maxConcurrent < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive and maxQueued not negative");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+    }
+
+    // Completes once a permit is held, or fails with RejectedException; every completed acquire needs one release
+    public Mono<Void> acquire() {
+        Mono<Void> permit = Mono.create(sink -> {
+            Waiter waiter;
+            synchronized (this) {
+                if (inFlight < maxConcurrent) {
+                    inFlight++;
+                    waiter = null;
+                } else if (waiting.size() < maxQueued) {
+                    waiter = new Waiter(sink);
+                    waiting.add(waiter);
+                } else {
+                    sink.error(new RejectedException("Too many requests queued"));
+                    return;
+                }
+            }
+            if (waiter == null) {
+                sink.success();
+                return;
+            }
+            // A waiter that gives up (timeout or cancelled request) either leaves the queue or, if release() handed
+            // it the permit in the meantime, passes that permit on
+            sink.onCancel(() -> {
+                if (waiter.claim()) {
+                    synchronized (this) {
+                        waiting.remove(waiter);
+                    }
+                } else {
+                    release();
+                }
+            });
+        });
+        return permit.timeout(maxWait)
+                .onErrorMap(TimeoutException.class, e -> new RejectedException("Timed out waiting for a permit"));
+    }
+
+    public void release() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+            if (next.claim()) {
+                next.sink.success();
+                return;
+            }
+        }
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return waiting.size();
+    }
+
+    private static final class Waiter {
+
+        private final MonoSink<Void> sink;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Waiter(MonoSink<Void> sink) {
+            this.sink = sink;
+        }
+
+        // Exactly one of release() and the waiter's cancellation wins the waiter
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
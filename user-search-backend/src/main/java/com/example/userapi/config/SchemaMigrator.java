@@ -0,0 +1,105 @@
+package com.example.userapi.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.r2dbc.connection.init.ScriptUtils;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Applies the versioned scripts under db/migration (V<version>__<description>.sql) that are not yet recorded in
+// schema_version, in version order, before the application starts serving
+@Component
+public class SchemaMigrator implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private static final Pattern MIGRATION_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Value("${users.schema.migrations:classpath*:db/migration/V*__*.sql}")
+    private String migrationsLocation;
+
+    @Value("${users.schema.unique-email:false}")
+    private boolean uniqueEmail;
+
+    @Override
+    public void afterPropertiesSet() {
+        migrate(databaseClient).block();
+    }
+
+    // Method to bring another database (e.g. a shard of the users table) to the same schema version
+    public Mono<Void> migrate(DatabaseClient client) {
+        return Mono.fromCallable(this::discover).flatMap(migrations -> migrate(client, migrations));
+    }
+
+    private Mono<Void> migrate(DatabaseClient client, List<Migration> migrations) {
+        return client.sql("CREATE TABLE IF NOT EXISTS schema_version ("
+                        + "version INT PRIMARY KEY, description VARCHAR(200) NOT NULL, installed_at TIMESTAMP NOT NULL)")
+                .then()
+                .then(client.sql("SELECT version FROM schema_version")
+                        .map(row -> row.get("version", Integer.class))
+                        .all()
+                        .collect(Collectors.toSet()))
+                .flatMapMany(applied -> Flux.fromIterable(migrations)
+                        .filter(migration -> !applied.contains(migration.version()))
+                        .concatMap(migration -> apply(client, migration)))
+                .then(Mono.defer(() -> uniqueEmail
+                        ? execute(client,
+                                new PathMatchingResourcePatternResolver().getResource("classpath:db/optional/unique-email.sql"))
+                        : Mono.empty()));
+    }
+
+    private Mono<Void> apply(DatabaseClient client, Migration migration) {
+        logger.info("Applying schema migration V{} ({})", migration.version(), migration.description());
+        return execute(client, migration.script())
+                .then(client.sql("INSERT INTO schema_version (version, description, installed_at) "
+                                + "VALUES (:version, :description, CURRENT_TIMESTAMP)")
+                        .bind("version", migration.version())
+                        .bind("description", migration.description())
+                        .then());
+    }
+
+    private static Mono<Void> execute(DatabaseClient client, Resource script) {
+        return client.inConnection(connection -> ScriptUtils.executeSqlScript(connection, script));
+    }
+
+    private List<Migration> discover() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(migrationsLocation);
+        List<Migration> migrations = Arrays.stream(resources)
+                .map(resource -> {
+                    Matcher matcher = MIGRATION_NAME.matcher(resource.getFilename() == null ? "" : resource.getFilename());
+                    if (!matcher.matches()) {
+                        throw new IllegalStateException("Invalid migration file name: " + resource.getFilename());
+                    }
+                    return new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '), resource);
+                })
+                .sorted(Comparator.comparingInt(Migration::version))
+                .toList();
+        Set<Integer> versions = migrations.stream().map(Migration::version).collect(Collectors.toSet());
+        if (versions.size() != migrations.size()) {
+            throw new IllegalStateException("Duplicate schema migration versions in " + migrationsLocation);
+        }
+        return migrations;
+    }
+
+    private record Migration(int version, String description, Resource script) {
+    }
+}
@@ -1,16 +1,31 @@
 package com.example.userapi.controller;
 
+import com.example.userapi.config.CodecConfig;
+import com.example.userapi.importer.ImportProgress;
+import com.example.userapi.model.BatchWriteResult;
 import com.example.userapi.model.User;
+import com.example.userapi.model.UserFilter;
+import com.example.userapi.model.UserPage;
+import com.example.userapi.repository.UserProjection;
+import com.example.userapi.search.SuggestIndex;
+import com.example.userapi.service.UserLookupCache;
 import com.example.userapi.service.UserService;
+import com.example.userapi.service.UserSnapshotService;
+import com.example.userapi.service.UserSyncService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
@@ -21,6 +36,12 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserSyncService userSyncService;
+
+    @Autowired
+    private UserSnapshotService userSnapshotService;
+
     // Endpoint to import users from an external source
     @PostMapping("/import")
     public Mono<String> importUsers() {
@@ -29,20 +50,175 @@ public class UserController {
                 .doOnTerminate(() -> logger.info("User import process completed."));
     }
 
-    // Endpoint to fetch all users
-    @GetMapping
+    // Endpoint to report the progress (imported users, rows/sec) of the running or last import
+    @GetMapping("/import/progress")
+    public Mono<ImportProgress.ImportStatus> getImportProgress() {
+        return Mono.fromSupplier(userService::getImportStatus);
+    }
+
+    // Endpoint to run (or resume) an incremental sync: only new, changed and removed users are written
+    @PostMapping("/sync")
+    public Mono<UserSyncService.SyncResult> syncUsers() {
+        return userSyncService.sync();
+    }
+
+    // Endpoint to write a snapshot of all users now (users.snapshot.path), which an empty node restores on startup
+    @PostMapping("/snapshot")
+    public Mono<UserSnapshotService.SnapshotInfo> writeSnapshot() {
+        return userSnapshotService.writeSnapshot();
+    }
+
+    // Endpoint to stream user changes as server-sent events after sequence number since, or after the Last-Event-ID
+    // an EventSource sends when it reconnects; without either only changes from now on are sent
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamChanges(@RequestParam(required = false) Long since,
+                                                       @RequestHeader(value = "Last-Event-ID", required = false)
+                                                       Long lastEventId) {
+        return userService.streamChanges(since != null ? since : lastEventId);
+    }
+
+    // Endpoint to fetch all users, as a JSON array or streamed as NDJSON / server-sent events depending on Accept
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.TEXT_EVENT_STREAM_VALUE, CodecConfig.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
     public Flux<User> getAllUsers() {
-        logger.info("Fetching all users...");
+        logger.debug("Fetching all users...");
         return userService.findAllUsers()
-                .doOnTerminate(() -> logger.info("Fetched all users."));
+                .doOnTerminate(() -> logger.debug("Fetched all users."));
     }
 
-    // Endpoint to search for users based on a query (first name, last name, or SSN)
-    @GetMapping("/search")
+    // Endpoint to fetch all users with only the requested fields (fields=summary, fields=full or e.g.
+    // fields=firstName,email,address)
+    @GetMapping(params = "fields", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.TEXT_EVENT_STREAM_VALUE, CodecConfig.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public Flux<Map<String, Object>> getAllUsers(@RequestParam String fields) {
+        return userService.findAllUsers(UserProjection.parse(fields));
+    }
+
+    // Endpoint to fetch one keyset page of users, with optional role filter and server-side sort
+    // (e.g. sort=lastName,desc)
+    @GetMapping(params = "limit")
+    public Mono<UserPage<User>> getUsersPage(@RequestParam int limit,
+                                             @RequestParam(required = false) String after,
+                                             @RequestParam(required = false) String sort,
+                                             @RequestParam(required = false) String role) {
+        logger.debug("Fetching users page (limit: {}, sort: {}, role: {})", limit, sort, role);
+        return userService.findUsersPage(role, sort, after, limit);
+    }
+
+    // Endpoint to fetch one keyset page of users with only the requested fields
+    @GetMapping(params = {"limit", "fields"})
+    public Mono<UserPage<Map<String, Object>>> getUsersPage(@RequestParam int limit,
+                                                            @RequestParam(required = false) String after,
+                                                            @RequestParam(required = false) String sort,
+                                                            @RequestParam(required = false) String role,
+                                                            @RequestParam String fields) {
+        return userService.findUsersPage(role, sort, after, limit, UserProjection.parse(fields));
+    }
+
+    // Endpoint to search for users based on a query (first name, last name, or SSN), as a JSON array or streamed
+    // as NDJSON / server-sent events depending on Accept
+    @GetMapping(value = "/search", params = "!fuzzy", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.TEXT_EVENT_STREAM_VALUE, CodecConfig.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
     public Flux<User> searchUsers(@RequestParam String query) {
-        logger.info("Searching users with query: {}", query);
+        logger.debug("Searching users with query: {}", query);
         return userService.searchUsers(query)
-                .doOnTerminate(() -> logger.info("Search completed for query: {}", query));
+                .doOnTerminate(() -> logger.debug("Search completed for query: {}", query));
+    }
+
+    // Endpoint to search for users with only the requested fields
+    @GetMapping(value = "/search", params = {"fields", "!fuzzy"}, produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE, CodecConfig.APPLICATION_SMILE_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE})
+    public Flux<Map<String, Object>> searchUsers(@RequestParam String query, @RequestParam String fields) {
+        return userService.searchUsers(query, UserProjection.parse(fields));
+    }
+
+    // Endpoint to fetch one keyset page of search results, with optional role filter and server-side sort
+    @GetMapping(value = "/search", params = {"limit", "!fuzzy"})
+    public Mono<UserPage<User>> searchUsersPage(@RequestParam String query,
+                                                @RequestParam int limit,
+                                                @RequestParam(required = false) String after,
+                                                @RequestParam(required = false) String sort,
+                                                @RequestParam(required = false) String role) {
+        logger.debug("Searching users page with query: {} (limit: {}, sort: {}, role: {})", query, limit, sort, role);
+        return userService.searchUsersPage(query, role, sort, after, limit);
+    }
+
+    // Endpoint to fetch one keyset page of search results with only the requested fields
+    @GetMapping(value = "/search", params = {"limit", "fields", "!fuzzy"})
+    public Mono<UserPage<Map<String, Object>>> searchUsersPage(@RequestParam String query,
+                                                               @RequestParam int limit,
+                                                               @RequestParam(required = false) String after,
+                                                               @RequestParam(required = false) String sort,
+                                                               @RequestParam(required = false) String role,
+                                                               @RequestParam String fields) {
+        return userService.searchUsersPage(query, role, sort, after, limit, UserProjection.parse(fields));
+    }
+
+    // Endpoint to search users by name tolerating typos (fuzzy = maximum edits per word), best matches first; results
+    // are ranked rather than paged or projected, so fuzzy combined with limit or fields is rejected with 400
+    @GetMapping(value = "/search", params = {"fuzzy", "!limit", "!fields"})
+    public Flux<User> searchUsersFuzzy(@RequestParam String query,
+                                       @RequestParam int fuzzy,
+                                       @RequestParam(defaultValue = "20") int k) {
+        return userService.searchUsersFuzzy(query, fuzzy, k);
+    }
+
+    // Endpoint to find users living within radiusKm of a point, nearest first
+    @GetMapping("/near")
+    public Flux<User> findUsersNear(@RequestParam double lat,
+                                    @RequestParam double lng,
+                                    @RequestParam double radiusKm,
+                                    @RequestParam(defaultValue = "100") int limit) {
+        return userService.findUsersNear(lat, lng, radiusKm, limit);
+    }
+
+    // Endpoint to find the k users living nearest to a point, nearest first
+    @GetMapping("/nearest")
+    public Flux<User> findNearestUsers(@RequestParam double lat,
+                                       @RequestParam double lng,
+                                       @RequestParam(defaultValue = "10") int k) {
+        return userService.findNearestUsers(lat, lng, k);
+    }
+
+    // Endpoint for typeahead: up to k users whose first name, last name, username or email starts with the prefix
+    @GetMapping("/suggest")
+    public Flux<SuggestIndex.Suggestion> suggestUsers(@RequestParam String prefix,
+                                                      @RequestParam(defaultValue = "10") int k) {
+        return userService.suggestUsers(prefix, k);
+    }
+
+    // Endpoint to fetch one page (in id order) of users matching a structured filter, evaluated in memory before
+    // any row is read, e.g. {"and": [{"field": "role", "eq": "admin"}, {"field": "age", "gte": 30, "lte": 40}]}
+    @PostMapping("/filter")
+    public Mono<UserPage<User>> filterUsers(@RequestBody UserFilter filter,
+                                            @RequestParam(defaultValue = "100") int limit,
+                                            @RequestParam(required = false) String after) {
+        logger.debug("Filtering users with {} (limit: {})", filter, limit);
+        return userService.filterUsersPage(filter, after, limit);
+    }
+
+    // Endpoint to fetch one page of users matching a structured filter with only the requested fields
+    @PostMapping(value = "/filter", params = "fields")
+    public Mono<UserPage<Map<String, Object>>> filterUsers(@RequestBody UserFilter filter,
+                                                           @RequestParam(defaultValue = "100") int limit,
+                                                           @RequestParam(required = false) String after,
+                                                           @RequestParam String fields) {
+        return userService.filterUsersPage(filter, after, limit, UserProjection.parse(fields));
+    }
+
+    // Endpoint to count users per role, gender, blood group, state, department and age bucket, optionally only
+    // among the matches of a search query
+    @GetMapping("/facets")
+    public Mono<Map<String, Map<String, Integer>>> getFacets(@RequestParam(required = false) String query) {
+        return userService.getFacets(query, null);
+    }
+
+    // Endpoint to count facets among the users matching a structured filter (and the query, when given)
+    @PostMapping("/facets")
+    public Mono<Map<String, Map<String, Integer>>> getFacets(@RequestParam(required = false) String query,
+                                                             @RequestBody UserFilter filter) {
+        return userService.getFacets(query, filter);
     }
 
     // Endpoint to find a user either by ID or by email
@@ -50,34 +226,67 @@ public class UserController {
     public Mono<User> findUser(@RequestParam(required = false) Long id, @RequestParam(required = false) String email) {
         // Log which method is being used for the search (ID or email)
         if (id != null) {
-            logger.info("Finding user with ID: {}", id);
+            logger.debug("Finding user with ID: {}", id);
         } else if (email != null) {
-            logger.info("Finding user with email: {}", email);
+            logger.debug("Finding user with email: {}", email);
         }
         return userService.findUserByIdOrEmail(id, email)
                 .doOnTerminate(() -> {
                     // Log the result of the search (ID or email)
                     if (id != null) {
-                        logger.info("User with ID: {} found", id);
+                        logger.debug("User with ID: {} found", id);
                     } else if (email != null) {
-                        logger.info("User with email: {} found", email);
+                        logger.debug("User with email: {} found", email);
                     }
                 });
     }
 
+    // Endpoint to find a user either by ID or by email with only the requested fields
+    @GetMapping(value = "/find", params = "fields")
+    public Mono<Map<String, Object>> findUser(@RequestParam(required = false) Long id,
+                                              @RequestParam(required = false) String email,
+                                              @RequestParam String fields) {
+        return userService.findUserByIdOrEmail(id, email, UserProjection.parse(fields));
+    }
+
+    // Endpoint to report hit/miss/eviction statistics of the /find lookup cache
+    @GetMapping("/cache/stats")
+    public Mono<UserLookupCache.Stats> getLookupCacheStats() {
+        return Mono.fromSupplier(userService::getLookupCacheStats);
+    }
+
     // Endpoint to update an existing user's information
     @PutMapping("/{id}")
     public ResponseEntity<Mono<User>> updateUser(@PathVariable Long id, @RequestBody User updatedUser) {
-        logger.info("Updating user with ID: {}", id);
+        logger.debug("Updating user with ID: {}", id);
         return new ResponseEntity<>(userService.updateUser(id, updatedUser)
-                .doOnTerminate(() -> logger.info("User with ID: {} updated", id)), HttpStatus.OK);
+                .doOnTerminate(() -> logger.debug("User with ID: {} updated", id)), HttpStatus.OK);
+    }
+
+    // Endpoint to update only the fields present in the body, e.g. {"phone": "...", "address": {"city": "Austin"}}
+    @PatchMapping("/{id}")
+    public Mono<User> patchUser(@PathVariable Long id, @RequestBody Map<String, Object> changes) {
+        logger.debug("Patching user with ID: {}", id);
+        return userService.patchUser(id, changes);
+    }
+
+    // Endpoint to apply up to 1000 partial updates, each with the id of the user and the fields to change
+    @PostMapping("/batch-update")
+    public Mono<BatchWriteResult> batchUpdateUsers(@RequestBody List<Map<String, Object>> changes) {
+        return userService.batchUpdateUsers(changes);
+    }
+
+    // Endpoint to delete up to 1000 users by id
+    @PostMapping("/batch-delete")
+    public Mono<BatchWriteResult> batchDeleteUsers(@RequestBody List<Long> ids) {
+        return userService.batchDeleteUsers(ids);
     }
 
     // Endpoint to delete a user by their ID
     @DeleteMapping("/{id}")
     public Mono<String> deleteUser(@PathVariable Long id) {
-        logger.info("Deleting user with ID: {}", id);
+        logger.debug("Deleting user with ID: {}", id);
         return userService.deleteUser(id)
-                .doOnTerminate(() -> logger.info("User with ID: {} deleted", id));
+                .doOnTerminate(() -> logger.debug("User with ID: {} deleted", id));
     }
 }
@@ -1,7 +1,9 @@
 package com.example.userapi.exception;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
@@ -10,13 +12,17 @@ import reactor.core.publisher.Mono;
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(UserNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
     public Mono<String> handleUserNotFoundException(UserNotFoundException ex) {
         return Mono.just(ex.getMessage());
     }
 
+    // Keeps the status of the exception, e.g. 400 for invalid parameters (including missing, malformed or
+    // conflicting ones rejected by the request mapping) and 409 for a conflicting import, sync or snapshot
     @ExceptionHandler(ResponseStatusException.class)
-    public Mono<String> handleResponseStatusException(ResponseStatusException ex) {
-        return Mono.just("Error: " + ex.getReason());
+    public Mono<ResponseEntity<String>> handleResponseStatusException(ResponseStatusException ex) {
+        return Mono.just(ResponseEntity.status(ex.getStatusCode()).headers(ex.getHeaders())
+                .body("Error: " + ex.getReason()));
     }
 
     @ExceptionHandler(Exception.class)
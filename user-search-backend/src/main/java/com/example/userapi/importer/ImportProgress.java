@@ -0,0 +1,44 @@
+package com.example.userapi.importer;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Tracks the progress of the running (or last) user import
+@Component
+public class ImportProgress {
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong importedUsers = new AtomicLong();
+    private volatile long startedAt;
+    private volatile long finishedAt;
+
+    // Marks the start of an import; imports do not overlap, as they hold the write job lock while running
+    public void start() {
+        importedUsers.set(0);
+        startedAt = System.nanoTime();
+        finishedAt = 0;
+        running.set(true);
+    }
+
+    public long recordBatch(long users) {
+        return importedUsers.addAndGet(users);
+    }
+
+    public void finish() {
+        finishedAt = System.nanoTime();
+        running.set(false);
+    }
+
+    public ImportStatus snapshot() {
+        long end = finishedAt == 0 ? System.nanoTime() : finishedAt;
+        long elapsedNanos = startedAt == 0 ? 0 : end - startedAt;
+        long imported = importedUsers.get();
+        double rowsPerSecond = elapsedNanos == 0 ? 0 : imported * 1_000_000_000.0 / elapsedNanos;
+        return new ImportStatus(running.get(), imported, elapsedNanos / 1_000_000, Math.round(rowsPerSecond));
+    }
+
+    public record ImportStatus(boolean running, long importedUsers, long elapsedMillis, long rowsPerSecond) {
+    }
+}
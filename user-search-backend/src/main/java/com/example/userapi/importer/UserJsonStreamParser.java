@@ -0,0 +1,126 @@
+package com.example.userapi.importer;
+
+import com.example.userapi.model.User;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Incrementally parses a {"users": [...], "total": n} document as bytes arrive, materializing one User at a time
+public class UserJsonStreamParser {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private int depth;
+    private String rootField;
+    private boolean inUsers;
+    private TokenBuffer current;
+    private int currentDepth;
+
+    private long total = -1;
+    private int count;
+
+    public UserJsonStreamParser(ObjectMapper objectMapper) {
+        try {
+            this.objectMapper = objectMapper;
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create non-blocking JSON parser", e);
+        }
+    }
+
+    // Value of the top-level "total" field, or -1 if it has not been seen (yet)
+    public long getTotal() {
+        return total;
+    }
+
+    // Number of users parsed so far
+    public int getCount() {
+        return count;
+    }
+
+    // Feeds the next chunk of the document and returns the users completed by it
+    public List<User> feed(byte[] bytes, int offset, int length) throws IOException {
+        feeder.feedInput(bytes, offset, offset + length);
+        return drain();
+    }
+
+    // Signals the end of the document and returns any users completed by the remaining input
+    public List<User> endOfInput() throws IOException {
+        feeder.endOfInput();
+        List<User> users = drain();
+        if (depth != 0) {
+            throw new IOException("Truncated user document");
+        }
+        return users;
+    }
+
+    private List<User> drain() throws IOException {
+        List<User> users = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (current != null) {
+                copy(token, users);
+                continue;
+            }
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> {
+                    if (inUsers && depth == 2 && token == JsonToken.START_OBJECT) {
+                        // A new element of the users array: buffer its tokens until the matching END_OBJECT
+                        current = new TokenBuffer(parser, null);
+                        current.copyCurrentEvent(parser);
+                        currentDepth = 1;
+                    } else {
+                        depth++;
+                        if (depth == 2 && "users".equals(rootField) && token == JsonToken.START_ARRAY) {
+                            inUsers = true;
+                        }
+                    }
+                }
+                case END_OBJECT, END_ARRAY -> {
+                    if (depth == 2) {
+                        inUsers = false;
+                    }
+                    depth--;
+                }
+                case FIELD_NAME -> {
+                    if (depth == 1) {
+                        rootField = parser.currentName();
+                    }
+                }
+                case VALUE_NUMBER_INT -> {
+                    if (depth == 1 && "total".equals(rootField)) {
+                        total = parser.getLongValue();
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return users;
+    }
+
+    private void copy(JsonToken token, List<User> users) throws IOException {
+        current.copyCurrentEvent(parser);
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            currentDepth++;
+        } else if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+            currentDepth--;
+        }
+        if (currentDepth == 0) {
+            try (JsonParser element = current.asParser(objectMapper)) {
+                users.add(objectMapper.readValue(element, User.class));
+            }
+            current = null;
+            count++;
+        }
+    }
+}
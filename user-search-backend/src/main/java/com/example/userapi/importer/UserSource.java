@@ -0,0 +1,128 @@
+package com.example.userapi.importer;
+
+import com.example.userapi.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.BiFunction;
+
+// Streams users from the external source page by page (?limit=&skip=), parsing each response body as it arrives
+@Component
+public class UserSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSource.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final WebClient webClient;
+
+    private final int pageSize;
+
+    public UserSource(WebClient.Builder webClientBuilder,
+                      @Value("${users.api.url:https://dummyjson.com/users}") String usersApiUrl,
+                      @Value("${users.import.page-size:100}") int pageSize) {
+        this.webClient = webClientBuilder.baseUrl(usersApiUrl).build();
+        this.pageSize = pageSize;
+    }
+
+    // Emits every user of the source, requesting the next page only after the previous one has been consumed
+    public Flux<User> streamUsers() {
+        return streamFrom(0);
+    }
+
+    // Emits the pages of the source from skip on, each once it has been fully parsed; the next page is only
+    // fetched after the previous one has been emitted and the subscriber asks for more
+    public Flux<Page> streamPages(int skip) {
+        return fetchPages(skip, (pageSkip, parser) -> fetchPage(pageSkip, parser)
+                .collectList()
+                .map(users -> new Page(pageSkip, users))
+                .flux());
+    }
+
+    // One page of the source and the skip it was requested with
+    public record Page(int skip, List<User> users) {
+
+        public int nextSkip() {
+            return skip + users.size();
+        }
+    }
+
+    private Flux<User> streamFrom(int skip) {
+        return fetchPages(skip, this::fetchPage);
+    }
+
+    // Requests one page after the other in a flat loop: each page is only generated once the previous one has
+    // completed (concatMap without prefetch) and has moved the cursor. Chaining every next page onto the previous
+    // one with concatWith instead nests one operator per page, so that the cost of a long import grows with the
+    // square of its page count.
+    private <T> Flux<T> fetchPages(int skip, BiFunction<Integer, UserJsonStreamParser, Flux<T>> fetch) {
+        return Flux.defer(() -> {
+            PageCursor cursor = new PageCursor(skip);
+            return Flux.<UserJsonStreamParser>generate(sink -> {
+                        if (cursor.done) {
+                            sink.complete();
+                        } else {
+                            sink.next(new UserJsonStreamParser(objectMapper));
+                        }
+                    })
+                    .concatMap(parser -> fetch.apply(cursor.skip, parser)
+                            .doOnComplete(() -> cursor.advance(parser)), 0);
+        });
+    }
+
+    // Position of one paging run, only touched between pages
+    private static final class PageCursor {
+
+        private int skip;
+        private boolean done;
+
+        PageCursor(int skip) {
+            this.skip = skip;
+        }
+
+        void advance(UserJsonStreamParser parser) {
+            skip += parser.getCount();
+            // Without a total the source is not paginated, so a single response holds every user
+            done = parser.getCount() == 0 || parser.getTotal() < 0 || skip >= parser.getTotal();
+        }
+    }
+
+    private Flux<User> fetchPage(int skip, UserJsonStreamParser parser) {
+        logger.debug("Fetching users page (skip: {}, limit: {})", skip, pageSize);
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.queryParam("limit", pageSize).queryParam("skip", skip).build())
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .concatMapIterable(buffer -> {
+                    try {
+                        byte[] bytes = new byte[buffer.readableByteCount()];
+                        buffer.read(bytes);
+                        return parser.feed(bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                .concatWith(Flux.defer(() -> {
+                    try {
+                        List<User> remaining = parser.endOfInput();
+                        return Flux.fromIterable(remaining);
+                    } catch (IOException e) {
+                        return Flux.error(new UncheckedIOException(e));
+                    }
+                }));
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.userapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Outcome of a batch update or delete: how many users were changed and the requested ids that did not exist
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchWriteResult {
+    private long affected;
+    private List<Long> notFound;
+}
@@ -0,0 +1,25 @@
+package com.example.userapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// One entry of the change feed: seq increases by one per change, user is the stored user after an UPSERT and null
+// for a DELETE
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChange {
+
+    public enum Type {
+        UPSERT, DELETE
+    }
+
+    private long seq;
+    private Type type;
+    private long userId;
+    private Instant changedAt;
+    private User user;
+}
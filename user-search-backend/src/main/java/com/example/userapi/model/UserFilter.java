@@ -0,0 +1,52 @@
+package com.example.userapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Structured filter over user attributes. A node is either a combination (and / or / not) or a condition on one
+// field: eq, in, or for age also gte / lte. For example
+// {"and": [{"field": "role", "eq": "admin"}, {"field": "age", "gte": 30, "lte": 40}]}
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserFilter {
+    private List<UserFilter> and;
+    private List<UserFilter> or;
+    private UserFilter not;
+
+    private String field;
+    private String eq;
+    private List<String> in;
+    private Integer gte;
+    private Integer lte;
+
+    public static UserFilter eq(String field, String value) {
+        UserFilter filter = new UserFilter();
+        filter.setField(field);
+        filter.setEq(value);
+        return filter;
+    }
+
+    public static UserFilter range(String field, Integer gte, Integer lte) {
+        UserFilter filter = new UserFilter();
+        filter.setField(field);
+        filter.setGte(gte);
+        filter.setLte(lte);
+        return filter;
+    }
+
+    public static UserFilter and(List<UserFilter> filters) {
+        UserFilter filter = new UserFilter();
+        filter.setAnd(filters);
+        return filter;
+    }
+
+    public static UserFilter or(List<UserFilter> filters) {
+        UserFilter filter = new UserFilter();
+        filter.setOr(filters);
+        return filter;
+    }
+}
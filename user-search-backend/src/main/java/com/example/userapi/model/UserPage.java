@@ -0,0 +1,16 @@
+package com.example.userapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One keyset page of results; nextCursor is null on the last page
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPage<T> {
+    private List<T> items;
+    private String nextCursor;
+}
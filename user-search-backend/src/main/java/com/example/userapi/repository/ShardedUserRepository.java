@@ -0,0 +1,390 @@
+package com.example.userapi.repository;
+
+import com.example.userapi.config.SchemaMigrator;
+import com.example.userapi.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.r2dbc.dialect.R2dbcDialect;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// Partitioned mode (users.shards.count > 1): users are spread over independent databases by a hash of their id, and
+// this repository replaces the single-database UserRepository. Id lookups and writes go straight to the owning shard;
+// email lookups go through a bounded in-memory email -> shard directory that is filled by writes and lookups and
+// falls back to asking every shard. Reads across shards run in parallel: listings and pages are merged from the per-shard results, which
+// are already sorted, with a streaming k-way merge in the same (sort key, id) order the database uses, so a page only
+// reads limit rows per shard. String keys are compared by code point, which is H2's default collation.
+@Component
+@Primary
+@ConditionalOnExpression("${users.shards.count:1} > 1")
+public class ShardedUserRepository implements UserRepository, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedUserRepository.class);
+
+    private static final Comparator<User> BY_ID = Comparator.comparing(User::getId);
+
+    private final List<Shard> shards = new ArrayList<>();
+    // Only a hint: emails beyond the maximum size are evicted, and entries left by deletes or email changes are
+    // dropped by the next lookup that misses on them
+    private final Cache<String, Integer> emailDirectory;
+    private final Mono<AtomicLong> lastId;
+
+    private record Shard(UserRepository repository, DatabaseClient client, ConnectionPool pool) {
+    }
+
+    public ShardedUserRepository(SchemaMigrator schemaMigrator, R2dbcConverter converter,
+                                 @Value("${users.shards.count}") int count,
+                                 @Value("${users.shards.url:r2dbc:h2:mem:///users-shard-{shard};DB_CLOSE_DELAY=-1}") String url,
+                                 @Value("${users.shards.username:sa}") String username,
+                                 @Value("${users.shards.password:}") String password,
+                                 @Value("${users.shards.pool-size:10}") int poolSize,
+                                 @Value("${users.write.batch-size:250}") int batchSize,
+                                 @Value("${users.stream.fetch-size:500}") int fetchSize,
+                                 @Value("${users.shards.email-directory.max-size:100000}") long directorySize) {
+        this.emailDirectory = Caffeine.newBuilder().maximumSize(directorySize).build();
+        for (int index = 0; index < count; index++) {
+            ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url.replace("{shard}", String.valueOf(index)))
+                    .mutate()
+                    .option(ConnectionFactoryOptions.USER, username)
+                    .option(ConnectionFactoryOptions.PASSWORD, password)
+                    .build();
+            ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                    .name("users-shard-" + index)
+                    .maxSize(poolSize)
+                    .maxIdleTime(Duration.ofMinutes(10))
+                    .build());
+            R2dbcDialect dialect = DialectResolver.getDialect(pool);
+            DatabaseClient client = DatabaseClient.builder()
+                    .connectionFactory(pool)
+                    .bindMarkers(dialect.getBindMarkersFactory())
+                    .build();
+            R2dbcEntityTemplate template = new R2dbcEntityTemplate(client, dialect, converter);
+            schemaMigrator.migrate(client).block();
+            UserRepository repository = new R2dbcRepositoryFactory(template).getRepository(UserRepository.class,
+                    RepositoryComposition.RepositoryFragments.just(new UserBatchRepositoryImpl(template, batchSize),
+                            new UserPageRepositoryImpl(template, fetchSize)));
+            shards.add(new Shard(repository, client, pool));
+        }
+        // Ids of users written without one are handed out above the largest id of any shard, read once on first use
+        this.lastId = Flux.fromIterable(shards)
+                .flatMap(shard -> shard.client().sql("SELECT MAX(id) AS max_id FROM users")
+                        .map(row -> {
+                            Long max = row.get("max_id", Long.class);
+                            return max == null ? 0L : max;
+                        })
+                        .one())
+                .reduce(0L, Math::max)
+                .map(AtomicLong::new)
+                .cache();
+        logger.info("Users are partitioned over {} shards ({})", count, url);
+    }
+
+    // Maps an id to the index of its shard; the id is mixed first so consecutive ids spread evenly
+    public static int shardOf(long id, int shardCount) {
+        long hash = id;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) shardCount);
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    // Number of emails the directory currently maps to a shard
+    public long emailDirectorySize() {
+        emailDirectory.cleanUp();
+        return emailDirectory.estimatedSize();
+    }
+
+    // The repository of a single shard, e.g. to inspect how users are spread
+    public UserRepository shard(int index) {
+        return shards.get(index).repository();
+    }
+
+    @Override
+    public void destroy() {
+        shards.forEach(shard -> shard.pool().dispose());
+    }
+
+    @Override
+    public Mono<User> findByEmail(String email) {
+        Integer known = emailDirectory.getIfPresent(email);
+        Mono<User> everyShard = Flux.fromIterable(shards)
+                .flatMap(shard -> shard.repository().findByEmail(email))
+                .next()
+                .doOnNext(this::remember);
+        if (known == null) {
+            return everyShard;
+        }
+        // The directory is only a hint: the user may have been deleted or changed email since it was recorded
+        return shards.get(known).repository().findByEmail(email)
+                .switchIfEmpty(Mono.defer(() -> {
+                    emailDirectory.asMap().remove(email, known);
+                    return everyShard;
+                }));
+    }
+
+    @Override
+    public Flux<User> streamAll() {
+        return mergeSorted(BY_ID, UserPageRepository::streamAll);
+    }
+
+    @Override
+    public Flux<User> findPage(Criteria filter, UserSort sort, Sort.Direction direction, UserCursor after, int limit) {
+        return mergeSorted(pageOrder(sort, direction, sort::valueOf, User::getId),
+                        repository -> repository.findPage(filter, sort, direction, after, limit))
+                .take(limit);
+    }
+
+    @Override
+    public Flux<Map<String, Object>> findPage(Criteria filter, UserSort sort, Sort.Direction direction,
+                                              UserCursor after, UserProjection projection, int limit) {
+        Comparator<Map<String, Object>> order = pageOrder(sort, direction, user -> user.get(sort.getProperty()),
+                user -> ((Number) user.get("id")).longValue());
+        return mergeSorted(order, repository -> repository.findPage(filter, sort, direction, after, projection, limit))
+                .take(limit);
+    }
+
+    @Override
+    public Flux<Map<String, Object>> findProjected(Criteria filter, UserProjection projection) {
+        return Flux.merge(shardPublishers(repository -> repository.findProjected(filter, projection)));
+    }
+
+    @Override
+    public Mono<Long> upsertAll(List<User> users) {
+        return assignIds(users).thenMany(Flux.defer(() -> {
+                    List<List<User>> byShard = partition(users, User::getId);
+                    return Flux.range(0, shards.size())
+                            .filter(index -> !byShard.get(index).isEmpty())
+                            .flatMap(index -> shards.get(index).repository().upsertAll(byShard.get(index)));
+                }))
+                .reduce(0L, Long::sum)
+                .doOnSuccess(ignored -> users.forEach(this::remember));
+    }
+
+    @Override
+    public Mono<Long> replace(User user) {
+        return owner(user.getId()).replace(user)
+                .doOnNext(updated -> {
+                    if (updated > 0) {
+                        remember(user);
+                    }
+                });
+    }
+
+    @Override
+    public Flux<User> patchAll(List<UserPatch> patches) {
+        List<List<UserPatch>> byShard = partition(patches, UserPatch::id);
+        return Flux.range(0, shards.size())
+                .filter(index -> !byShard.get(index).isEmpty())
+                .flatMap(index -> shards.get(index).repository().patchAll(byShard.get(index)))
+                .doOnNext(this::remember);
+    }
+
+    @Override
+    public Flux<Long> deleteByIds(List<Long> ids) {
+        List<List<Long>> byShard = partition(ids, id -> id);
+        return Flux.range(0, shards.size())
+                .filter(index -> !byShard.get(index).isEmpty())
+                .flatMap(index -> shards.get(index).repository().deleteByIds(byShard.get(index)));
+    }
+
+    @Override
+    public <S extends User> Mono<S> save(S user) {
+        if (user.getId() == null) {
+            return upsertAll(List.of(user)).thenReturn(user);
+        }
+        return owner(user.getId()).save(user).doOnNext(this::remember);
+    }
+
+    @Override
+    public <S extends User> Flux<S> saveAll(Iterable<S> users) {
+        return Flux.fromIterable(users).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends User> Flux<S> saveAll(Publisher<S> users) {
+        return Flux.from(users).concatMap(this::save);
+    }
+
+    @Override
+    public Mono<User> findById(Long id) {
+        return owner(id).findById(id);
+    }
+
+    @Override
+    public Mono<User> findById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Long id) {
+        return owner(id).existsById(id);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<User> findAll() {
+        return Flux.merge(shardPublishers(UserRepository::findAll));
+    }
+
+    @Override
+    public Flux<User> findAllById(Iterable<Long> ids) {
+        List<Long> idList = new ArrayList<>();
+        ids.forEach(idList::add);
+        List<List<Long>> byShard = partition(idList, id -> id);
+        return Flux.range(0, shards.size())
+                .filter(index -> !byShard.get(index).isEmpty())
+                .flatMap(index -> shards.get(index).repository().findAllById(byShard.get(index)));
+    }
+
+    @Override
+    public Flux<User> findAllById(Publisher<Long> ids) {
+        return Flux.from(ids).collectList().flatMapMany(this::findAllById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Flux.merge(shardPublishers(UserRepository::count)).reduce(0L, Long::sum);
+    }
+
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return owner(id).deleteById(id);
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(User user) {
+        return deleteById(user.getId());
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends Long> ids) {
+        List<Long> idList = new ArrayList<>();
+        ids.forEach(idList::add);
+        return deleteByIds(idList).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends User> users) {
+        List<Long> ids = new ArrayList<>();
+        users.forEach(user -> ids.add(user.getId()));
+        return deleteByIds(ids).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends User> users) {
+        return Flux.from(users).map(User::getId).collectList().flatMap(ids -> deleteByIds(ids).then());
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Flux.merge(shardPublishers(UserRepository::deleteAll))
+                .then(Mono.fromRunnable(emailDirectory::invalidateAll));
+    }
+
+    private UserRepository owner(Long id) {
+        return shards.get(shardOf(id, shards.size())).repository();
+    }
+
+    private <T> List<Publisher<T>> shardPublishers(Function<UserRepository, Publisher<T>> query) {
+        List<Publisher<T>> publishers = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            publishers.add(query.apply(shard.repository()));
+        }
+        return publishers;
+    }
+
+    // Streaming k-way merge of per-shard results that are each sorted by order; an element is only emitted once every
+    // shard that has not completed yet has offered its next one
+    @SuppressWarnings("unchecked")
+    private <T> Flux<T> mergeSorted(Comparator<? super T> order, Function<UserRepository, Publisher<T>> query) {
+        return Flux.mergeComparing(order, shardPublishers(query).toArray(new Publisher[0]));
+    }
+
+    // Splits items by the shard owning their id, keeping their relative order
+    private <T> List<List<T>> partition(List<T> items, Function<T, Long> id) {
+        List<List<T>> byShard = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (T item : items) {
+            byShard.get(shardOf(id.apply(item), shards.size())).add(item);
+        }
+        return byShard;
+    }
+
+    private Mono<Void> assignIds(List<User> users) {
+        if (users.stream().allMatch(user -> user.getId() != null)) {
+            return Mono.empty();
+        }
+        return lastId.doOnNext(last -> {
+            for (User user : users) {
+                if (user.getId() == null) {
+                    user.setId(last.incrementAndGet());
+                }
+            }
+        }).then();
+    }
+
+    private void remember(User user) {
+        if (user.getEmail() != null && user.getId() != null) {
+            emailDirectory.put(user.getEmail(), shardOf(user.getId(), shards.size()));
+        }
+    }
+
+    // The order of UserPageRepositoryImpl: sort key with NULLs as the smallest value, then id, both in the direction
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Comparator<T> pageOrder(UserSort sort, Sort.Direction direction, Function<T, Object> value,
+                                               ToLongFunction<T> id) {
+        Comparator<T> ascending = Comparator.comparingLong(id);
+        if (sort != UserSort.ID) {
+            Comparator<T> byValue = Comparator.comparing(value,
+                    Comparator.nullsFirst((Comparator) Comparator.naturalOrder()));
+            ascending = byValue.thenComparing(ascending);
+        }
+        return direction.isAscending() ? ascending : ascending.reversed();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.userapi.repository;
+
+import com.example.userapi.model.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Batched and single-statement writes, implemented by UserBatchRepositoryImpl and mixed into UserRepository
+public interface UserBatchRepository {
+
+    // Inserts or updates the users by id, sending them to the database in batches, and emits the affected row count
+    Mono<Long> upsertAll(List<User> users);
+
+    // Overwrites every column of an existing user in one UPDATE and emits the affected row count (0 when there is
+    // no user with its id)
+    Mono<Long> replace(User user);
+
+    // Applies partial updates, one batched UPDATE per chunk of patches touching the same columns, and emits the
+    // updated users as stored; patches of missing users emit nothing
+    Flux<User> patchAll(List<UserPatch> patches);
+
+    // Deletes users by id, one batched DELETE per chunk, and emits the ids that were actually deleted
+    Flux<Long> deleteByIds(List<Long> ids);
+}
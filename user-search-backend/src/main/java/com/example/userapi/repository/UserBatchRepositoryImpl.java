@@ -0,0 +1,211 @@
+package com.example.userapi.repository;
+
+import com.example.userapi.model.User;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.r2dbc.dialect.PostgresDialect;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Each batch is one Statement with a binding set per user (Statement.add()), executed in a single round trip.
+// Upserts are keyed on id (H2 MERGE ... KEY, PostgreSQL INSERT ... ON CONFLICT) so re-imports update rows in place.
+// Updates and deletes never read the row first: a missing user shows up as an affected row count of 0, and partial
+// updates read the stored row back from the UPDATE itself (H2 FINAL TABLE, PostgreSQL RETURNING).
+public class UserBatchRepositoryImpl implements UserBatchRepository {
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    @Value("${users.write.batch-size:250}")
+    private int batchSize;
+
+    private volatile String upsertSql;
+
+    public UserBatchRepositoryImpl() {
+    }
+
+    // For repositories assembled outside the Spring context, such as those of the shards
+    public UserBatchRepositoryImpl(R2dbcEntityTemplate template, int batchSize) {
+        this.template = template;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Mono<Long> upsertAll(List<User> users) {
+        List<User> keyed = new ArrayList<>(users.size());
+        List<User> unkeyed = new ArrayList<>();
+        for (User user : users) {
+            (user.getId() == null ? unkeyed : keyed).add(user);
+        }
+        return chunks(keyed).concatMap(this::upsertBatch)
+                .concatWith(chunks(unkeyed).concatMap(this::insertBatch))
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public Mono<Long> replace(User user) {
+        List<UserColumns.Column> columns = UserColumns.ALL.subList(1, UserColumns.ALL.size());
+        String sql = "UPDATE users SET " + assignments(columns) + " WHERE id = $" + (columns.size() + 1);
+        return template.getDatabaseClient().inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(sql);
+            bind(statement, user, columns);
+            statement.bind(columns.size(), user.getId());
+            return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+        }).reduce(0L, Long::sum);
+    }
+
+    @Override
+    public Flux<User> patchAll(List<UserPatch> patches) {
+        Map<List<UserColumns.Column>, List<UserPatch>> byColumns = new LinkedHashMap<>();
+        for (UserPatch patch : patches) {
+            byColumns.computeIfAbsent(patch.columns(), columns -> new ArrayList<>()).add(patch);
+        }
+        return Flux.fromIterable(byColumns.entrySet())
+                .concatMap(group -> chunks(group.getValue()).concatMap(batch -> patchBatch(group.getKey(), batch)));
+    }
+
+    @Override
+    public Flux<Long> deleteByIds(List<Long> ids) {
+        return chunks(ids).concatMap(batch -> template.getDatabaseClient().inConnectionMany(connection -> {
+            Statement statement = connection.createStatement("DELETE FROM users WHERE id = $1");
+            for (int row = 0; row < batch.size(); row++) {
+                if (row > 0) {
+                    statement.add();
+                }
+                statement.bind(0, batch.get(row));
+            }
+            // One result per binding set, in order, so the row counts tell which ids existed
+            return Flux.from(statement.execute()).concatMap(Result::getRowsUpdated);
+        }).index().filter(deleted -> deleted.getT2() > 0).map(deleted -> batch.get(deleted.getT1().intValue())));
+    }
+
+    private Flux<User> patchBatch(List<UserColumns.Column> columns, List<UserPatch> batch) {
+        String update = "UPDATE users SET " + assignments(columns) + " WHERE id = $" + (columns.size() + 1);
+        String sql = isPostgres() ? update + " RETURNING *" : "SELECT * FROM FINAL TABLE (" + update + ")";
+        return template.getDatabaseClient().inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(sql);
+            for (int row = 0; row < batch.size(); row++) {
+                if (row > 0) {
+                    statement.add();
+                }
+                UserPatch patch = batch.get(row);
+                for (int i = 0; i < columns.size(); i++) {
+                    Object value = patch.values().get(columns.get(i));
+                    if (value == null) {
+                        statement.bindNull(i, columns.get(i).type());
+                    } else {
+                        statement.bind(i, value);
+                    }
+                }
+                statement.bind(columns.size(), patch.id());
+            }
+            return Flux.from(statement.execute())
+                    .concatMap(result -> result.map((row, metadata) -> template.getConverter().read(User.class, row, metadata)));
+        });
+    }
+
+    private <T> Flux<List<T>> chunks(List<T> items) {
+        return Flux.range(0, (items.size() + batchSize - 1) / batchSize)
+                .map(batch -> items.subList(batch * batchSize, Math.min(items.size(), (batch + 1) * batchSize)));
+    }
+
+    private Mono<Long> upsertBatch(List<User> batch) {
+        String sql = upsertSql();
+        return template.getDatabaseClient().inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(sql);
+            for (int row = 0; row < batch.size(); row++) {
+                if (row > 0) {
+                    statement.add();
+                }
+                bind(statement, batch.get(row), UserColumns.ALL);
+            }
+            return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+        }).reduce(0L, Long::sum);
+    }
+
+    // Users without an id get a generated key, which is read back and assigned to them in order
+    private Mono<Long> insertBatch(List<User> batch) {
+        List<UserColumns.Column> columns = UserColumns.ALL.subList(1, UserColumns.ALL.size());
+        String sql = "INSERT INTO users (" + names(columns) + ") VALUES (" + placeholders(columns.size()) + ")";
+        return template.getDatabaseClient().inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(sql).returnGeneratedValues(UserColumns.ID.name());
+            for (int row = 0; row < batch.size(); row++) {
+                if (row > 0) {
+                    statement.add();
+                }
+                bind(statement, batch.get(row), columns);
+            }
+            return Flux.from(statement.execute())
+                    .concatMap(result -> result.map((row, metadata) -> row.get(0, Long.class)));
+        }).index((row, id) -> {
+            batch.get(row.intValue()).setId(id);
+            return 1L;
+        }).reduce(0L, Long::sum);
+    }
+
+    private static void bind(Statement statement, User user, List<UserColumns.Column> columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            UserColumns.Column column = columns.get(i);
+            Object value = column.getter().apply(user);
+            if (value == null) {
+                statement.bindNull(i, column.type());
+            } else {
+                statement.bind(i, value);
+            }
+        }
+    }
+
+    private static String names(List<UserColumns.Column> columns) {
+        return columns.stream().map(UserColumns.Column::name).collect(Collectors.joining(", "));
+    }
+
+    private static String assignments(List<UserColumns.Column> columns) {
+        StringBuilder assignments = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            assignments.append(i > 0 ? ", " : "").append(columns.get(i).name()).append(" = $").append(i + 1);
+        }
+        return assignments.toString();
+    }
+
+    private boolean isPostgres() {
+        return DialectResolver.getDialect(template.getDatabaseClient().getConnectionFactory()) instanceof PostgresDialect;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            placeholders.append(i > 1 ? ", $" : "$").append(i);
+        }
+        return placeholders.toString();
+    }
+
+    private String upsertSql() {
+        String sql = upsertSql;
+        if (sql == null) {
+            String names = names(UserColumns.ALL);
+            String placeholders = placeholders(UserColumns.ALL.size());
+            if (isPostgres()) {
+                String updates = UserColumns.ALL.stream()
+                        .filter(column -> column != UserColumns.ID)
+                        .map(column -> column.name() + " = EXCLUDED." + column.name())
+                        .collect(Collectors.joining(", "));
+                sql = "INSERT INTO users (" + names + ") VALUES (" + placeholders
+                        + ") ON CONFLICT (id) DO UPDATE SET " + updates;
+            } else {
+                sql = "MERGE INTO users (" + names + ") KEY (id) VALUES (" + placeholders + ")";
+            }
+            upsertSql = sql;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.userapi.repository;
+
+import com.example.userapi.model.User;
+import com.example.userapi.model.UserChange;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+
+// Persistent copy of the change feed (db/migration/V4), kept in the main database like the sync state
+@Component
+public class UserChangeStore {
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // The most recent changes, oldest first
+    public Flux<UserChange> latest(int limit) {
+        return client().sql("SELECT seq, change_type, user_id, changed_at, payload FROM user_changes "
+                        + "ORDER BY seq DESC LIMIT :limit")
+                .bind("limit", limit)
+                .map(row -> new UserChange(row.get("seq", Long.class),
+                        UserChange.Type.valueOf(row.get("change_type", String.class)),
+                        row.get("user_id", Long.class),
+                        row.get("changed_at", OffsetDateTime.class).toInstant(),
+                        fromJson(row.get("payload", String.class))))
+                .all()
+                .collectList()
+                .flatMapIterable(changes -> {
+                    Collections.reverse(changes);
+                    return changes;
+                });
+    }
+
+    // Appends changes in one batched statement
+    public Mono<Void> append(List<UserChange> changes) {
+        if (changes.isEmpty()) {
+            return Mono.empty();
+        }
+        return client().inConnectionMany(connection -> {
+            Statement statement = connection.createStatement("INSERT INTO user_changes "
+                    + "(seq, change_type, user_id, changed_at, payload) VALUES ($1, $2, $3, $4, $5)");
+            boolean first = true;
+            for (UserChange change : changes) {
+                if (!first) {
+                    statement.add();
+                }
+                first = false;
+                statement.bind(0, change.getSeq())
+                        .bind(1, change.getType().name())
+                        .bind(2, change.getUserId())
+                        .bind(3, change.getChangedAt().atOffset(ZoneOffset.UTC));
+                if (change.getUser() == null) {
+                    statement.bindNull(4, String.class);
+                } else {
+                    statement.bind(4, toJson(change.getUser()));
+                }
+            }
+            return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+        }).then();
+    }
+
+    // Drops the changes up to and including seq, which have left the in-memory ring
+    public Mono<Long> trim(long seq) {
+        return client().sql("DELETE FROM user_changes WHERE seq <= :seq")
+                .bind("seq", seq)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private String toJson(User user) {
+        try {
+            return objectMapper.writeValueAsString(user);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private User fromJson(String payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(payload, User.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DatabaseClient client() {
+        return template.getDatabaseClient();
+    }
+}
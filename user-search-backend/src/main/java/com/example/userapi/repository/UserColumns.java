@@ -0,0 +1,163 @@
+package com.example.userapi.repository;
+
+import com.example.userapi.model.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Flat description of every column of the users table, including the columns of the embedded Hair, Address,
+// Coordinates, Bank and Company objects, for code that builds SQL or reads rows without the entity converter
+public final class UserColumns {
+
+    // A column, the dotted JSON property it maps to (e.g. "address.coordinates.lat") and accessors on User
+    public record Column(String name, String property, Class<?> type,
+                         Function<User, Object> getter, BiConsumer<User, Object> setter) {
+    }
+
+    public static final Column ID = column("id", "id", Long.class, User::getId, (u, v) -> u.setId((Long) v));
+
+    public static final List<Column> ALL;
+
+    private static final Map<String, Column> BY_PROPERTY = new LinkedHashMap<>();
+    private static final Map<String, Column> BY_NAME = new LinkedHashMap<>();
+
+    static {
+        List<Column> columns = new ArrayList<>();
+        columns.add(ID);
+        columns.add(column("first_name", "firstName", String.class, User::getFirstName, (u, v) -> u.setFirstName((String) v)));
+        columns.add(column("last_name", "lastName", String.class, User::getLastName, (u, v) -> u.setLastName((String) v)));
+        columns.add(column("maiden_name", "maidenName", String.class, User::getMaidenName, (u, v) -> u.setMaidenName((String) v)));
+        columns.add(column("age", "age", Integer.class, User::getAge, (u, v) -> u.setAge((Integer) v)));
+        columns.add(column("gender", "gender", String.class, User::getGender, (u, v) -> u.setGender((String) v)));
+        columns.add(column("email", "email", String.class, User::getEmail, (u, v) -> u.setEmail((String) v)));
+        columns.add(column("phone", "phone", String.class, User::getPhone, (u, v) -> u.setPhone((String) v)));
+        columns.add(column("username", "username", String.class, User::getUsername, (u, v) -> u.setUsername((String) v)));
+        columns.add(column("password", "password", String.class, User::getPassword, (u, v) -> u.setPassword((String) v)));
+        columns.add(column("birth_date", "birthDate", String.class, User::getBirthDate, (u, v) -> u.setBirthDate((String) v)));
+        columns.add(column("image", "image", String.class, User::getImage, (u, v) -> u.setImage((String) v)));
+        columns.add(column("blood_group", "bloodGroup", String.class, User::getBloodGroup, (u, v) -> u.setBloodGroup((String) v)));
+        columns.add(column("height", "height", Double.class, User::getHeight, (u, v) -> u.setHeight((Double) v)));
+        columns.add(column("weight", "weight", Double.class, User::getWeight, (u, v) -> u.setWeight((Double) v)));
+        columns.add(column("eye_color", "eyeColor", String.class, User::getEyeColor, (u, v) -> u.setEyeColor((String) v)));
+
+        columns.add(hair("color", "color", User.Hair::getColor, User.Hair::setColor));
+        columns.add(hair("type", "type", User.Hair::getType, User.Hair::setType));
+
+        columns.add(address("address", "address", String.class, User.Address::getAddress, (a, v) -> a.setAddress((String) v)));
+        columns.add(address("city", "city", String.class, User.Address::getCity, (a, v) -> a.setCity((String) v)));
+        columns.add(address("state", "state", String.class, User.Address::getState, (a, v) -> a.setState((String) v)));
+        columns.add(address("state_code", "stateCode", String.class, User.Address::getStateCode, (a, v) -> a.setStateCode((String) v)));
+        columns.add(address("postal_code", "postalCode", String.class, User.Address::getPostalCode, (a, v) -> a.setPostalCode((String) v)));
+        columns.add(coordinates("lat", "lat", User.Coordinates::getLat, User.Coordinates::setLat));
+        columns.add(coordinates("lng", "lng", User.Coordinates::getLng, User.Coordinates::setLng));
+        columns.add(address("country", "country", String.class, User.Address::getCountry, (a, v) -> a.setCountry((String) v)));
+
+        columns.add(bank("card_expire", "cardExpire", User.Bank::getCardExpire, User.Bank::setCardExpire));
+        columns.add(bank("card_number", "cardNumber", User.Bank::getCardNumber, User.Bank::setCardNumber));
+        columns.add(bank("card_type", "cardType", User.Bank::getCardType, User.Bank::setCardType));
+        columns.add(bank("currency", "currency", User.Bank::getCurrency, User.Bank::setCurrency));
+        columns.add(bank("iban", "iban", User.Bank::getIban, User.Bank::setIban));
+
+        columns.add(company("department", "department", User.Company::getDepartment, User.Company::setDepartment));
+        columns.add(company("name", "name", User.Company::getName, User.Company::setName));
+        columns.add(company("title", "title", User.Company::getTitle, User.Company::setTitle));
+
+        columns.add(column("ein", "ein", String.class, User::getEin, (u, v) -> u.setEin((String) v)));
+        columns.add(column("ssn", "ssn", String.class, User::getSsn, (u, v) -> u.setSsn((String) v)));
+        columns.add(column("user_agent", "userAgent", String.class, User::getUserAgent, (u, v) -> u.setUserAgent((String) v)));
+        columns.add(column("role", "role", String.class, User::getRole, (u, v) -> u.setRole((String) v)));
+
+        ALL = Collections.unmodifiableList(columns);
+        for (Column column : ALL) {
+            BY_PROPERTY.put(column.property(), column);
+            BY_NAME.put(column.name(), column);
+        }
+    }
+
+    private UserColumns() {
+    }
+
+    // Looks up a column by its dotted JSON property, returning null when there is none
+    public static Column byProperty(String property) {
+        return BY_PROPERTY.get(property);
+    }
+
+    // Looks up a column by its SQL name, returning null when there is none
+    public static Column byName(String name) {
+        return BY_NAME.get(name);
+    }
+
+    private static Column column(String name, String property, Class<?> type,
+                                 Function<User, Object> getter, BiConsumer<User, Object> setter) {
+        return new Column(name, property, type, getter, setter);
+    }
+
+    private static Column hair(String name, String property,
+                               Function<User.Hair, String> getter, BiConsumer<User.Hair, String> setter) {
+        return nested(name, "hair." + property, String.class, User::getHair, User::setHair, User.Hair::new,
+                getter::apply, (hair, value) -> setter.accept(hair, (String) value));
+    }
+
+    private static Column address(String name, String property, Class<?> type,
+                                  Function<User.Address, Object> getter, BiConsumer<User.Address, Object> setter) {
+        return nested(name, "address." + property, type, User::getAddress, User::setAddress, User.Address::new,
+                getter, setter);
+    }
+
+    private static Column coordinates(String name, String property,
+                                      Function<User.Coordinates, Double> getter,
+                                      BiConsumer<User.Coordinates, Double> setter) {
+        Function<User, User.Coordinates> parent = user -> user.getAddress() == null ? null : user.getAddress().getCoordinates();
+        return new Column(name, "address.coordinates." + property, Double.class,
+                user -> {
+                    User.Coordinates coordinates = parent.apply(user);
+                    return coordinates == null ? null : getter.apply(coordinates);
+                },
+                (user, value) -> {
+                    if (user.getAddress() == null) {
+                        user.setAddress(new User.Address());
+                    }
+                    if (user.getAddress().getCoordinates() == null) {
+                        user.getAddress().setCoordinates(new User.Coordinates());
+                    }
+                    setter.accept(user.getAddress().getCoordinates(), (Double) value);
+                });
+    }
+
+    private static Column bank(String name, String property,
+                               Function<User.Bank, String> getter, BiConsumer<User.Bank, String> setter) {
+        return nested(name, "bank." + property, String.class, User::getBank, User::setBank, User.Bank::new,
+                getter::apply, (bank, value) -> setter.accept(bank, (String) value));
+    }
+
+    private static Column company(String name, String property,
+                                  Function<User.Company, String> getter, BiConsumer<User.Company, String> setter) {
+        return nested(name, "company." + property, String.class, User::getCompany, User::setCompany, User.Company::new,
+                getter::apply, (company, value) -> setter.accept(company, (String) value));
+    }
+
+    private static <E> Column nested(String name, String property, Class<?> type,
+                                     Function<User, E> parentGetter, BiConsumer<User, E> parentSetter,
+                                     Supplier<E> parentFactory,
+                                     Function<E, Object> getter, BiConsumer<E, Object> setter) {
+        return new Column(name, property, type,
+                user -> {
+                    E parent = parentGetter.apply(user);
+                    return parent == null ? null : getter.apply(parent);
+                },
+                (user, value) -> {
+                    E parent = parentGetter.apply(user);
+                    if (parent == null) {
+                        parent = parentFactory.get();
+                        parentSetter.accept(user, parent);
+                    }
+                    setter.accept(parent, value);
+                });
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.userapi.repository;
+
+import com.example.userapi.model.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+// Opaque keyset position: the sort key and id of the last row of a page, bound to the sort it was produced for
+public record UserCursor(UserSort sort, Sort.Direction direction, long id, Object value) {
+
+    private static final String NULL_MARKER = "n";
+    private static final String VALUE_MARKER = "v";
+
+    public static UserCursor after(User user, UserSort sort, Sort.Direction direction) {
+        return new UserCursor(sort, direction, user.getId(), sort.valueOf(user));
+    }
+
+    // Builds the cursor from a projected user, which must include the id and the sort key
+    public static UserCursor after(Map<String, Object> user, UserSort sort, Sort.Direction direction) {
+        return new UserCursor(sort, direction, ((Number) user.get("id")).longValue(), user.get(sort.getProperty()));
+    }
+
+    public String encode() {
+        String raw = sort.getProperty() + "|" + direction.name() + "|" + id + "|"
+                + (value == null ? NULL_MARKER : VALUE_MARKER + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Decodes a cursor and checks that it was issued for the requested sort
+    public static UserCursor decode(String cursor, UserSort sort, Sort.Direction direction) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4 || UserSort.fromProperty(parts[0]) != sort
+                    || Sort.Direction.valueOf(parts[1]) != direction) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor does not match the requested sort");
+            }
+            Object value = parts[3].startsWith(VALUE_MARKER) ? sort.parseValue(parts[3].substring(1)) : null;
+            return new UserCursor(sort, direction, Long.parseLong(parts[2]), value);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.userapi.repository;
+
+import com.example.userapi.model.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.relational.core.query.Criteria;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+
+// Keyset-paginated reads, implemented by UserPageRepositoryImpl and mixed into UserRepository
+public interface UserPageRepository {
+
+    // Streams every user in id order, fetching users.stream.fetch-size rows per round trip as downstream demands them
+    Flux<User> streamAll();
+
+    // Reads up to limit users matching the filter, ordered by sort then id, starting strictly after the cursor
+    Flux<User> findPage(Criteria filter, UserSort sort, Sort.Direction direction, UserCursor after, int limit);
+
+    // Same as findPage, but selects and maps only the projected columns
+    Flux<Map<String, Object>> findPage(Criteria filter, UserSort sort, Sort.Direction direction, UserCursor after,
+                                       UserProjection projection, int limit);
+
+    // Reads the projected columns of every user matching the filter, in no particular order
+    Flux<Map<String, Object>> findProjected(Criteria filter, UserProjection projection);
+}
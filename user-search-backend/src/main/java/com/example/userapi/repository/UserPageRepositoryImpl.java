@@ -0,0 +1,138 @@
+package com.example.userapi.repository;
+
+import com.example.userapi.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.core.StatementMapper;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.core.PreparedOperation;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// NULL sort keys are ordered as the smallest values (NULLS FIRST ascending, NULLS LAST descending) so that the
+// seek predicates below visit every row exactly once regardless of the database's default null ordering
+public class UserPageRepositoryImpl implements UserPageRepository {
+
+    private static final String ID = "id";
+    private static final String TABLE = "users";
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    // Rows fetched per round trip by streaming reads; downstream demand is capped to the same amount so a slow
+    // client stops the cursor instead of buffering the table in memory
+    @Value("${users.stream.fetch-size:500}")
+    private int fetchSize;
+
+    public UserPageRepositoryImpl() {
+    }
+
+    // For repositories assembled outside the Spring context, such as those of the shards
+    public UserPageRepositoryImpl(R2dbcEntityTemplate template, int fetchSize) {
+        this.template = template;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Flux<User> streamAll() {
+        StatementMapper mapper = template.getDataAccessStrategy().getStatementMapper().forType(User.class);
+        StatementMapper.SelectSpec select = mapper.createSelect(TABLE)
+                .withProjection(UserProjection.FULL.getColumnNames().toArray(new String[0]))
+                .withSort(Sort.by(ID));
+        return template.getDatabaseClient().sql(mapper.getMappedObject(select))
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map((row, metadata) -> template.getConverter().read(User.class, row, metadata))
+                .all()
+                .limitRate(fetchSize);
+    }
+
+    @Override
+    public Flux<User> findPage(Criteria filter, UserSort sort, Sort.Direction direction, UserCursor after, int limit) {
+        Query query = Query.query(pageCriteria(filter, sort, direction, after))
+                .sort(order(sort, direction))
+                .limit(limit);
+        return template.select(query, User.class);
+    }
+
+    @Override
+    public Flux<Map<String, Object>> findPage(Criteria filter, UserSort sort, Sort.Direction direction,
+                                              UserCursor after, UserProjection projection, int limit) {
+        StatementMapper mapper = template.getDataAccessStrategy().getStatementMapper().forType(User.class);
+        StatementMapper.SelectSpec select = mapper.createSelect(TABLE)
+                .withProjection(projection.getColumnNames().toArray(new String[0]))
+                .withCriteria(pageCriteria(filter, sort, direction, after))
+                .withSort(order(sort, direction))
+                .limit(limit);
+        return selectProjected(mapper.getMappedObject(select), projection);
+    }
+
+    @Override
+    public Flux<Map<String, Object>> findProjected(Criteria filter, UserProjection projection) {
+        StatementMapper mapper = template.getDataAccessStrategy().getStatementMapper().forType(User.class);
+        StatementMapper.SelectSpec select = mapper.createSelect(TABLE)
+                .withProjection(projection.getColumnNames().toArray(new String[0]));
+        if (filter != null && !filter.isEmpty()) {
+            select = select.withCriteria(filter);
+        }
+        return selectProjected(mapper.getMappedObject(select), projection);
+    }
+
+    // Maps rows straight into the projection, bypassing the entity converter
+    private Flux<Map<String, Object>> selectProjected(PreparedOperation<?> operation, UserProjection projection) {
+        return template.getDatabaseClient().sql(operation)
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map((row, metadata) -> projection.read(row))
+                .all()
+                .limitRate(fetchSize);
+    }
+
+    private static Criteria pageCriteria(Criteria filter, UserSort sort, Sort.Direction direction, UserCursor after) {
+        List<Criteria> parts = new ArrayList<>();
+        if (filter != null && !filter.isEmpty()) {
+            parts.add(filter);
+        }
+        if (after != null) {
+            parts.add(seek(sort, direction, after));
+        }
+        return Criteria.from(parts);
+    }
+
+    private static Sort order(UserSort sort, Sort.Direction direction) {
+        if (sort == UserSort.ID) {
+            return Sort.by(direction, ID);
+        }
+        Sort.Order order = new Sort.Order(direction, sort.getProperty(),
+                direction.isAscending() ? Sort.NullHandling.NULLS_FIRST : Sort.NullHandling.NULLS_LAST);
+        return Sort.by(order, new Sort.Order(direction, ID));
+    }
+
+    // Builds the predicate selecting rows that come after the cursor position in (sort key, id) order
+    private static Criteria seek(UserSort sort, Sort.Direction direction, UserCursor after) {
+        boolean ascending = direction.isAscending();
+        if (sort == UserSort.ID) {
+            return ascending ? Criteria.where(ID).greaterThan(after.id()) : Criteria.where(ID).lessThan(after.id());
+        }
+        String column = sort.getProperty();
+        Object value = after.value();
+        if (ascending) {
+            if (value == null) {
+                return Criteria.where(column).isNotNull()
+                        .or(Criteria.where(column).isNull().and(ID).greaterThan(after.id()));
+            }
+            return Criteria.where(column).greaterThan(value)
+                    .or(Criteria.where(column).is(value).and(ID).greaterThan(after.id()));
+        }
+        if (value == null) {
+            return Criteria.where(column).isNull().and(ID).lessThan(after.id());
+        }
+        return Criteria.where(column).lessThan(value)
+                .or(Criteria.where(column).is(value).and(ID).lessThan(after.id()))
+                .or(Criteria.where(column).isNull());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.userapi.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Partial update of one user: the columns present in a JSON body and their new values (null clears a column).
+// Nested objects address their embedded columns, e.g. {"phone": "...", "address": {"city": "Austin"}}, and a null
+// nested object clears all of them.
+public record UserPatch(long id, Map<UserColumns.Column, Object> values) {
+
+    // Parses a PATCH body for the user with this id; the body must not change the id
+    public static UserPatch parse(long id, Map<String, Object> body) {
+        Map<UserColumns.Column, Object> parsed = new HashMap<>();
+        if (body != null) {
+            flatten("", body, parsed);
+        }
+        Object bodyId = parsed.remove(UserColumns.ID);
+        if (bodyId != null && ((Long) bodyId) != id) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The id of a user cannot be changed");
+        }
+        if (parsed.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nothing to update");
+        }
+        // Table order, so patches of the same columns always produce the same statement
+        Map<UserColumns.Column, Object> values = new LinkedHashMap<>();
+        for (UserColumns.Column column : UserColumns.ALL) {
+            if (parsed.containsKey(column)) {
+                values.put(column, parsed.get(column));
+            }
+        }
+        return new UserPatch(id, Collections.unmodifiableMap(values));
+    }
+
+    // Parses one entry of a batch update, which carries the id of the user it applies to
+    public static UserPatch parse(Map<String, Object> body) {
+        Object id = body == null ? null : body.get(UserColumns.ID.property());
+        if (!(id instanceof Number number) || number.longValue() != number.doubleValue()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every update needs a numeric id");
+        }
+        return parse(number.longValue(), body);
+    }
+
+    // The updated columns in table order, which is also the order of their parameters
+    public List<UserColumns.Column> columns() {
+        return List.copyOf(values.keySet());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void flatten(String prefix, Map<String, Object> body, Map<UserColumns.Column, Object> values) {
+        for (Map.Entry<String, Object> entry : body.entrySet()) {
+            String property = prefix + entry.getKey();
+            UserColumns.Column column = UserColumns.byProperty(property);
+            if (column == null && entry.getValue() instanceof Map<?, ?> nested) {
+                flatten(property + ".", (Map<String, Object>) nested, values);
+            } else if (column == null && entry.getValue() == null) {
+                clearNested(property, values);
+            } else if (column == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + property);
+            } else {
+                values.put(column, convert(column, entry.getValue()));
+            }
+        }
+    }
+
+    // Nulls every embedded column of the nested object at property, e.g. address.coordinates.lat for "address"
+    private static void clearNested(String property, Map<UserColumns.Column, Object> values) {
+        boolean found = false;
+        for (UserColumns.Column column : UserColumns.ALL) {
+            if (column.property().startsWith(property + ".")) {
+                values.put(column, null);
+                found = true;
+            }
+        }
+        if (!found) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + property);
+        }
+    }
+
+    private static Object convert(UserColumns.Column column, Object value) {
+        if (value == null || column.type().isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Number number) {
+            if (column.type() == Double.class) {
+                return number.doubleValue();
+            }
+            if (column.type() == Integer.class && number.intValue() == number.doubleValue()) {
+                return number.intValue();
+            }
+            if (column.type() == Long.class && number.longValue() == number.doubleValue()) {
+                return number.longValue();
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Invalid value for " + column.property() + ": " + value);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.userapi.repository;
+
+import com.example.userapi.model.User;
+import io.r2dbc.spi.Row;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// A subset of the users columns selected by ?fields=: either a predefined view ("summary", "full") or a
+// comma-separated list of dotted JSON properties, where a prefix such as "address" selects every nested column.
+// Projected users are read straight from the row into nested maps shaped like the User JSON, so only the selected
+// columns are read, allocated and serialized.
+public final class UserProjection {
+
+    public static final UserProjection SUMMARY = of(List.of("id", "firstName", "lastName", "email", "username",
+            "age", "role", "ssn"));
+
+    public static final UserProjection FULL = new UserProjection(UserColumns.ALL);
+
+    private final List<UserColumns.Column> columns;
+    private final List<String[]> paths;
+
+    private UserProjection(List<UserColumns.Column> columns) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.paths = new ArrayList<>(columns.size());
+        for (UserColumns.Column column : columns) {
+            paths.add(column.property().split("\\."));
+        }
+    }
+
+    // Parses the fields parameter; the id is always included so that projected users stay addressable
+    public static UserProjection parse(String fields) {
+        if (fields == null || fields.isBlank() || fields.trim().equalsIgnoreCase("full")) {
+            return FULL;
+        }
+        if (fields.trim().equalsIgnoreCase("summary")) {
+            return SUMMARY;
+        }
+        List<String> properties = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            if (!field.isBlank()) {
+                properties.add(field.trim());
+            }
+        }
+        return of(properties);
+    }
+
+    private static UserProjection of(List<String> properties) {
+        Set<UserColumns.Column> selected = new LinkedHashSet<>();
+        selected.add(UserColumns.ID);
+        for (String property : properties) {
+            UserColumns.Column column = UserColumns.byProperty(property);
+            if (column != null) {
+                selected.add(column);
+                continue;
+            }
+            boolean matched = false;
+            for (UserColumns.Column candidate : UserColumns.ALL) {
+                if (candidate.property().startsWith(property + ".")) {
+                    selected.add(candidate);
+                    matched = true;
+                }
+            }
+            if (!matched) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + property);
+            }
+        }
+        // Keep the table's column order regardless of the order the fields were requested in
+        List<UserColumns.Column> ordered = new ArrayList<>(selected.size());
+        for (UserColumns.Column column : UserColumns.ALL) {
+            if (selected.contains(column)) {
+                ordered.add(column);
+            }
+        }
+        return new UserProjection(ordered);
+    }
+
+    // Returns this projection with the given column added, e.g. the sort key a keyset cursor is built from
+    public UserProjection with(String property) {
+        UserColumns.Column column = UserColumns.byProperty(property);
+        if (column == null || columns.contains(column)) {
+            return this;
+        }
+        List<UserColumns.Column> extended = new ArrayList<>(columns);
+        extended.add(column);
+        return new UserProjection(extended);
+    }
+
+    public List<UserColumns.Column> getColumns() {
+        return columns;
+    }
+
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>(columns.size());
+        for (UserColumns.Column column : columns) {
+            names.add(column.name());
+        }
+        return names;
+    }
+
+    // Reads the selected columns of a row into nested maps
+    public Map<String, Object> read(Row row) {
+        Map<String, Object> user = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            UserColumns.Column column = columns.get(i);
+            put(user, paths.get(i), row.get(column.name(), column.type()));
+        }
+        return user;
+    }
+
+    // Projects an already loaded user (e.g. from the lookup cache) through the column getters
+    public Map<String, Object> apply(User source) {
+        Map<String, Object> user = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            put(user, paths.get(i), columns.get(i).getter().apply(source));
+        }
+        return user;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> target, String[] path, Object value) {
+        Map<String, Object> current = target;
+        for (int i = 0; i < path.length - 1; i++) {
+            current = (Map<String, Object>) current.computeIfAbsent(path[i], key -> new LinkedHashMap<String, Object>());
+        }
+        current.put(path[path.length - 1], value);
+    }
+}
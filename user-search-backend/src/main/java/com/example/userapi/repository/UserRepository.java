@@ -1,11 +1,12 @@
 package com.example.userapi.repository;
 
 import com.example.userapi.model.User;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface UserRepository extends ReactiveCrudRepository<User, Long> {
-    Flux<User> findByFirstNameContainingOrLastNameContainingOrSsnContaining(String firstName, String lastName, String ssn);
+public interface UserRepository extends ReactiveCrudRepository<User, Long>, UserPageRepository, UserBatchRepository {
+    // Derived queries do not expand the @Embedded columns, so the SELECT is spelled out (served by ix_users_email)
+    @Query("SELECT * FROM users WHERE email = :email")
     Mono<User> findByEmail(String email);
 }
@@ -0,0 +1,54 @@
+package com.example.userapi.repository;
+
+import com.example.userapi.model.User;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.function.Function;
+
+// Columns that pages can be ordered by; every order is made unique by using the id as a tie-breaker
+public enum UserSort {
+    ID("id", User::getId),
+    FIRST_NAME("firstName", User::getFirstName),
+    LAST_NAME("lastName", User::getLastName),
+    EMAIL("email", User::getEmail),
+    USERNAME("username", User::getUsername),
+    SSN("ssn", User::getSsn),
+    ROLE("role", User::getRole),
+    AGE("age", User::getAge);
+
+    private final String property;
+    private final Function<User, Object> extractor;
+
+    UserSort(String property, Function<User, Object> extractor) {
+        this.property = property;
+        this.extractor = extractor;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Object valueOf(User user) {
+        return extractor.apply(user);
+    }
+
+    // Converts the string form stored in a cursor back to the column's Java type
+    public Object parseValue(String value) {
+        return switch (this) {
+            case ID -> Long.valueOf(value);
+            case AGE -> Integer.valueOf(value);
+            default -> value;
+        };
+    }
+
+    public static UserSort fromProperty(String property) {
+        for (UserSort sort : values()) {
+            if (sort.property.equalsIgnoreCase(property)) {
+                return sort;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported sort property: " + property
+                + " (expected one of id, firstName, lastName, email, username, ssn, role, age)");
+    }
+}
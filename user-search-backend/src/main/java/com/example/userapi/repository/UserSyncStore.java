@@ -0,0 +1,141 @@
+package com.example.userapi.repository;
+
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.r2dbc.dialect.PostgresDialect;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Persistent state of the incremental sync (db/migration/V3): per-user content hashes with the run that last saw
+// them, and the checkpoint a run resumes from after an interruption
+@Component
+public class UserSyncStore {
+
+    private static final String CHECKPOINT_NAME = "users";
+
+    private static final UserProjection ID_ONLY = UserProjection.parse("id");
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    // In partitioned mode the users live in the shards, so the stored hashes cannot be joined with them
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${users.shards.count:1}")
+    private int shardCount;
+
+    // Position of the last (or current) run; completed is false while a run is in progress or was interrupted
+    public record Checkpoint(long runId, int nextSkip, boolean completed) {
+    }
+
+    public Mono<Checkpoint> checkpoint() {
+        return client().sql("SELECT run_id, next_skip, completed FROM sync_checkpoint WHERE name = :name")
+                .bind("name", CHECKPOINT_NAME)
+                .map(row -> new Checkpoint(row.get("run_id", Long.class), row.get("next_skip", Integer.class),
+                        Boolean.TRUE.equals(row.get("completed", Boolean.class))))
+                .one();
+    }
+
+    public Mono<Void> saveCheckpoint(Checkpoint checkpoint) {
+        String sql = isPostgres()
+                ? "INSERT INTO sync_checkpoint (name, run_id, next_skip, completed, updated_at) "
+                + "VALUES ($1, $2, $3, $4, CURRENT_TIMESTAMP) ON CONFLICT (name) DO UPDATE SET run_id = EXCLUDED.run_id, "
+                + "next_skip = EXCLUDED.next_skip, completed = EXCLUDED.completed, updated_at = EXCLUDED.updated_at"
+                : "MERGE INTO sync_checkpoint (name, run_id, next_skip, completed, updated_at) KEY (name) "
+                + "VALUES ($1, $2, $3, $4, CURRENT_TIMESTAMP)";
+        return client().sql(sql)
+                .bind(0, CHECKPOINT_NAME)
+                .bind(1, checkpoint.runId())
+                .bind(2, checkpoint.nextSkip())
+                .bind(3, checkpoint.completed())
+                .then();
+    }
+
+    // Content hashes of the given users that are still stored; users deleted locally count as unknown so that the
+    // sync writes them again
+    public Mono<Map<Long, Long>> hashes(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        if (shardCount > 1) {
+            return selectHashes("SELECT id, content_hash FROM user_sync_hashes WHERE id IN (:ids)", ids)
+                    .zipWith(userRepository.findProjected(Criteria.where("id").in(ids), ID_ONLY)
+                            .map(user -> ((Number) user.get("id")).longValue())
+                            .collect(Collectors.toSet()))
+                    .map(stored -> {
+                        Map<Long, Long> hashes = new HashMap<>(stored.getT1());
+                        hashes.keySet().retainAll(stored.getT2());
+                        return hashes;
+                    });
+        }
+        return selectHashes("SELECT h.id, h.content_hash FROM user_sync_hashes h JOIN users u ON u.id = h.id "
+                + "WHERE h.id IN (:ids)", ids);
+    }
+
+    private Mono<Map<Long, Long>> selectHashes(String sql, List<Long> ids) {
+        return client().sql(sql)
+                .bind("ids", ids)
+                .map(row -> Map.entry(row.get("id", Long.class), row.get("content_hash", Long.class)))
+                .all()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    // Records the hashes of a page of users as seen by a run, in one batched statement
+    public Mono<Void> markSeen(Map<Long, Long> hashesById, long runId) {
+        if (hashesById.isEmpty()) {
+            return Mono.empty();
+        }
+        String sql = isPostgres()
+                ? "INSERT INTO user_sync_hashes (id, content_hash, seen_run) VALUES ($1, $2, $3) ON CONFLICT (id) "
+                + "DO UPDATE SET content_hash = EXCLUDED.content_hash, seen_run = EXCLUDED.seen_run"
+                : "MERGE INTO user_sync_hashes (id, content_hash, seen_run) KEY (id) VALUES ($1, $2, $3)";
+        return client().inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(sql);
+            boolean first = true;
+            for (Map.Entry<Long, Long> hash : hashesById.entrySet()) {
+                if (!first) {
+                    statement.add();
+                }
+                first = false;
+                statement.bind(0, hash.getKey()).bind(1, hash.getValue()).bind(2, runId);
+            }
+            return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+        }).then();
+    }
+
+    // Ids of source users that the given (complete) run did not see, i.e. that were removed from the source
+    public Flux<Long> unseenIds(long runId) {
+        return client().sql("SELECT id FROM user_sync_hashes WHERE seen_run < :run")
+                .bind("run", runId)
+                .map(row -> row.get("id", Long.class))
+                .all();
+    }
+
+    public Mono<Long> forgetUnseen(long runId) {
+        return client().sql("DELETE FROM user_sync_hashes WHERE seen_run < :run")
+                .bind("run", runId)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private DatabaseClient client() {
+        return template.getDatabaseClient();
+    }
+
+    private boolean isPostgres() {
+        return DialectResolver.getDialect(client().getConnectionFactory()) instanceof PostgresDialect;
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.userapi.search;
+
+import com.example.userapi.model.User;
+import com.example.userapi.model.UserFilter;
+import com.example.userapi.repository.UserColumns;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Compressed bitmap index over low-cardinality user attributes used to evaluate structured filters in memory.
+// Every categorical value has a Roaring bitmap of the ordinals holding it (values compare ignoring case). Age is
+// range encoded: ageAtMost[v] holds every user aged v or less, so any age range is one ANDNOT of two bitmaps. The same
+// bitmaps answer facet counts as (intersection) cardinalities.
+@Component
+public class AttributeIndex implements UserIndex {
+
+    // Filterable categorical attributes, by dotted JSON property
+    public static final List<String> ATTRIBUTES = List.of("role", "gender", "bloodGroup", "eyeColor",
+            "address.city", "address.state", "address.stateCode", "address.country", "company.department",
+            "bank.cardType");
+
+    public static final String AGE = "age";
+
+    // Attributes counted by facets, plus age in AGE_BUCKET year buckets
+    public static final List<String> FACETS = List.of("role", "gender", "bloodGroup", "address.state",
+            "company.department");
+
+    static final int AGE_BUCKET = 10;
+
+    // Ages are range encoded over 0..MAX_AGE; larger values are indexed as MAX_AGE
+    static final int MAX_AGE = 150;
+
+    private static final int NO_AGE = -1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final DocOrdinals ordinals = new DocOrdinals();
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final List<UserColumns.Column> columns = new ArrayList<>();
+    private final List<Map<String, RoaringBitmap>> bitmaps = new ArrayList<>();
+    // First spelling seen of every normalized value, returned as the facet label
+    private final List<Map<String, String>> labels = new ArrayList<>();
+    private final Map<String, Integer> attributeSlots = new HashMap<>();
+    private final RoaringBitmap[] ageAtMost = new RoaringBitmap[MAX_AGE + 1];
+
+    // Indexed (normalized) values and age per ordinal, needed to remove a user
+    private String[][] values = new String[1024][];
+    private int[] ages = new int[1024];
+
+    public AttributeIndex() {
+        for (String attribute : ATTRIBUTES) {
+            attributeSlots.put(attribute, columns.size());
+            columns.add(UserColumns.byProperty(attribute));
+            bitmaps.add(new HashMap<>());
+            labels.add(new HashMap<>());
+        }
+        for (int age = 0; age <= MAX_AGE; age++) {
+            ageAtMost[age] = new RoaringBitmap();
+        }
+    }
+
+    @Override
+    public void index(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        String[] userValues = new String[columns.size()];
+        String[] userLabels = new String[columns.size()];
+        for (int slot = 0; slot < columns.size(); slot++) {
+            Object value = columns.get(slot).getter().apply(user);
+            userLabels[slot] = value == null ? null : value.toString().trim();
+            userValues[slot] = value == null ? null : normalize(userLabels[slot]);
+        }
+        int age = user.getAge() == null || user.getAge() < 0 ? NO_AGE : Math.min(user.getAge(), MAX_AGE);
+        lock.writeLock().lock();
+        try {
+            removeLocked(user.getId());
+            int ordinal = ordinals.allocate(user.getId());
+            if (ordinal >= values.length) {
+                values = Arrays.copyOf(values, values.length << 1);
+                ages = Arrays.copyOf(ages, ages.length << 1);
+            }
+            values[ordinal] = userValues;
+            ages[ordinal] = age;
+            live.add(ordinal);
+            for (int slot = 0; slot < userValues.length; slot++) {
+                if (userValues[slot] != null) {
+                    bitmaps.get(slot).computeIfAbsent(userValues[slot], key -> new RoaringBitmap()).add(ordinal);
+                    labels.get(slot).putIfAbsent(userValues[slot], userLabels[slot]);
+                }
+            }
+            if (age != NO_AGE) {
+                for (int bound = age; bound <= MAX_AGE; bound++) {
+                    ageAtMost[bound].add(ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            live.clear();
+            bitmaps.forEach(Map::clear);
+            labels.forEach(Map::clear);
+            for (RoaringBitmap bitmap : ageAtMost) {
+                bitmap.clear();
+            }
+            values = new String[1024][];
+            ages = new int[1024];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns the ids of every user matching the filter, in ascending order
+    public long[] filter(UserFilter filter) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = evaluate(filter);
+            long[] ids = new long[matches.getCardinality()];
+            int count = 0;
+            for (int ordinal : matches) {
+                ids[count++] = ordinals.id(ordinal);
+            }
+            Arrays.sort(ids);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Counts users per value of every facet attribute and per age bucket, most frequent value first. Counts can be
+    // restricted to a set of ids and/or a filter (either may be null); they are bitmap cardinalities, so no user is
+    // visited.
+    public Map<String, Map<String, Integer>> facets(long[] ids, UserFilter filter) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap restriction = filter == null ? null : evaluate(filter);
+            if (ids != null) {
+                RoaringBitmap matches = new RoaringBitmap();
+                for (long id : ids) {
+                    int ordinal = ordinals.ordinal(id);
+                    if (ordinal >= 0) {
+                        matches.add(ordinal);
+                    }
+                }
+                restriction = restriction == null ? matches : RoaringBitmap.and(restriction, matches);
+            }
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            for (String attribute : FACETS) {
+                int slot = attributeSlots.get(attribute);
+                List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+                for (Map.Entry<String, RoaringBitmap> value : bitmaps.get(slot).entrySet()) {
+                    int count = count(value.getValue(), restriction);
+                    if (count > 0) {
+                        counts.add(Map.entry(labels.get(slot).get(value.getKey()), count));
+                    }
+                }
+                counts.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()));
+                Map<String, Integer> values = new LinkedHashMap<>();
+                counts.forEach(count -> values.put(count.getKey(), count.getValue()));
+                facets.put(attribute, values);
+            }
+            // Bucket [from, from + AGE_BUCKET) holds ageAtMost[to] minus ageAtMost[from - 1], so it is a difference
+            // of two cardinalities
+            Map<String, Integer> ageBuckets = new LinkedHashMap<>();
+            int below = 0;
+            for (int from = 0; from <= MAX_AGE; from += AGE_BUCKET) {
+                int to = Math.min(MAX_AGE, from + AGE_BUCKET - 1);
+                int atMost = count(ageAtMost[to], restriction);
+                if (atMost > below) {
+                    // Larger ages are indexed as MAX_AGE, so the last bucket is open ended
+                    ageBuckets.put(to == MAX_AGE ? from + "+" : from + "-" + to, atMost - below);
+                }
+                below = atMost;
+            }
+            facets.put(AGE, ageBuckets);
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int count(RoaringBitmap bitmap, RoaringBitmap restriction) {
+        return restriction == null ? bitmap.getCardinality() : RoaringBitmap.andCardinality(bitmap, restriction);
+    }
+
+    private RoaringBitmap evaluate(UserFilter filter) {
+        if (filter == null) {
+            throw badFilter("Filter must not be empty");
+        }
+        int kinds = (filter.getAnd() != null ? 1 : 0) + (filter.getOr() != null ? 1 : 0)
+                + (filter.getNot() != null ? 1 : 0) + (filter.getField() != null ? 1 : 0);
+        if (kinds != 1) {
+            throw badFilter("Each filter must have exactly one of and, or, not or field");
+        }
+        if (filter.getAnd() != null) {
+            return and(filter.getAnd());
+        }
+        if (filter.getOr() != null) {
+            RoaringBitmap result = new RoaringBitmap();
+            for (UserFilter child : filter.getOr()) {
+                result.or(evaluate(child));
+            }
+            return result;
+        }
+        if (filter.getNot() != null) {
+            return RoaringBitmap.andNot(live, evaluate(filter.getNot()));
+        }
+        return condition(filter);
+    }
+
+    // Intersects the smallest operands first so that the running result shrinks as early as possible
+    private RoaringBitmap and(List<UserFilter> filters) {
+        if (filters.isEmpty()) {
+            return live.clone();
+        }
+        List<RoaringBitmap> operands = new ArrayList<>(filters.size());
+        for (UserFilter child : filters) {
+            operands.add(evaluate(child));
+        }
+        operands.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+        RoaringBitmap result = operands.get(0).clone();
+        for (int i = 1; i < operands.size() && !result.isEmpty(); i++) {
+            result.and(operands.get(i));
+        }
+        return result;
+    }
+
+    private RoaringBitmap condition(UserFilter filter) {
+        String field = filter.getField();
+        List<String> accepted = new ArrayList<>();
+        if (filter.getEq() != null) {
+            accepted.add(filter.getEq());
+        }
+        if (filter.getIn() != null) {
+            accepted.addAll(filter.getIn());
+        }
+        boolean range = filter.getGte() != null || filter.getLte() != null;
+        if (AGE.equals(field)) {
+            RoaringBitmap result = range ? ageRange(filter.getGte(), filter.getLte()) : null;
+            if (!accepted.isEmpty()) {
+                RoaringBitmap exact = new RoaringBitmap();
+                for (String value : accepted) {
+                    int age = parseAge(value);
+                    exact.or(ageRange(age, age));
+                }
+                result = result == null ? exact : RoaringBitmap.and(result, exact);
+            }
+            if (result == null) {
+                throw badFilter("Condition on age needs eq, in, gte or lte");
+            }
+            return result;
+        }
+        Integer slot = attributeSlots.get(field);
+        if (slot == null) {
+            throw badFilter("Unsupported filter field: " + field + " (supported: " + ATTRIBUTES + ", " + AGE + ")");
+        }
+        if (range) {
+            throw badFilter("Range conditions are only supported on " + AGE);
+        }
+        if (accepted.isEmpty()) {
+            throw badFilter("Condition on " + field + " needs eq or in");
+        }
+        RoaringBitmap result = new RoaringBitmap();
+        for (String value : accepted) {
+            RoaringBitmap bitmap = bitmaps.get(slot).get(normalize(value));
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    private RoaringBitmap ageRange(Integer gte, Integer lte) {
+        int from = gte == null ? 0 : Math.max(0, gte);
+        int to = lte == null ? MAX_AGE : Math.min(MAX_AGE, lte);
+        if (from > to) {
+            return new RoaringBitmap();
+        }
+        return from == 0 ? ageAtMost[to].clone() : RoaringBitmap.andNot(ageAtMost[to], ageAtMost[from - 1]);
+    }
+
+    private void removeLocked(long id) {
+        int ordinal = ordinals.release(id);
+        if (ordinal < 0) {
+            return;
+        }
+        live.remove(ordinal);
+        String[] userValues = values[ordinal];
+        for (int slot = 0; slot < userValues.length; slot++) {
+            if (userValues[slot] == null) {
+                continue;
+            }
+            RoaringBitmap bitmap = bitmaps.get(slot).get(userValues[slot]);
+            if (bitmap != null) {
+                bitmap.remove(ordinal);
+                if (bitmap.isEmpty()) {
+                    bitmaps.get(slot).remove(userValues[slot]);
+                    labels.get(slot).remove(userValues[slot]);
+                }
+            }
+        }
+        if (ages[ordinal] != NO_AGE) {
+            for (int bound = ages[ordinal]; bound <= MAX_AGE; bound++) {
+                ageAtMost[bound].remove(ordinal);
+            }
+        }
+        values[ordinal] = null;
+    }
+
+    private static int parseAge(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw badFilter("Invalid age: " + value);
+        }
+    }
+
+    private static String normalize(String value) {
+        return NGramIndex.normalize(value);
+    }
+
+    private static ResponseStatusException badFilter(String message) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.userapi.search;
+
+import java.util.Arrays;
+
+// Assigns dense int ordinals to user ids so indexes can store primitive int postings; freed ordinals are reused
+public class DocOrdinals {
+
+    private final LongIntHashMap idToOrdinal = new LongIntHashMap(1024);
+    private long[] ids = new long[1024];
+    private int[] freeOrdinals = new int[16];
+    private int freeCount;
+    private int maxOrdinal;
+
+    // Returns the ordinal of an id, or -1 when the id is not indexed
+    public int ordinal(long id) {
+        return idToOrdinal.get(id, -1);
+    }
+
+    public long id(int ordinal) {
+        return ids[ordinal];
+    }
+
+    public int size() {
+        return idToOrdinal.size();
+    }
+
+    // Exclusive upper bound of all ordinals handed out so far
+    public int maxOrdinal() {
+        return maxOrdinal;
+    }
+
+    public boolean isLive(int ordinal) {
+        return ordinal < maxOrdinal && idToOrdinal.get(ids[ordinal], -1) == ordinal;
+    }
+
+    // Allocates an ordinal for a new id, reusing a released one when available
+    public int allocate(long id) {
+        int ordinal = freeCount > 0 ? freeOrdinals[--freeCount] : maxOrdinal++;
+        if (ordinal >= ids.length) {
+            ids = Arrays.copyOf(ids, ids.length << 1);
+        }
+        ids[ordinal] = id;
+        idToOrdinal.put(id, ordinal);
+        return ordinal;
+    }
+
+    // Releases the ordinal held by an id, returning it or -1 when the id was not indexed
+    public int release(long id) {
+        int ordinal = idToOrdinal.remove(id, -1);
+        if (ordinal >= 0) {
+            if (freeCount == freeOrdinals.length) {
+                freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount << 1);
+            }
+            freeOrdinals[freeCount++] = ordinal;
+        }
+        return ordinal;
+    }
+
+    public void clear() {
+        idToOrdinal.clear();
+        freeCount = 0;
+        maxOrdinal = 0;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.userapi.search;
+
+import com.example.userapi.model.User;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Typo-tolerant name search: a term dictionary of first and last name words in a prefix trie, walked with a bounded
+// edit-distance automaton so only terms within the allowed edits are visited. Users must match every query word, are
+// scored by the sum of the edits needed per word, and the best k are kept in a bounded heap.
+@Component
+public class FuzzyIndex implements UserIndex {
+
+    // Hard upper bound for edits per word; beyond two almost every short name matches
+    public static final int MAX_EDITS = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final DocOrdinals ordinals = new DocOrdinals();
+    private final RadixTrie trie = new RadixTrie();
+
+    // Distinct name words per ordinal, needed to remove a user
+    private String[][] words = new String[1024][];
+
+    @Override
+    public void index(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        String[] values = words(user);
+        lock.writeLock().lock();
+        try {
+            removeLocked(user.getId());
+            int ordinal = ordinals.allocate(user.getId());
+            if (ordinal >= words.length) {
+                words = Arrays.copyOf(words, words.length << 1);
+            }
+            words[ordinal] = values;
+            for (String word : values) {
+                trie.insert(word, ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            trie.clear();
+            words = new String[1024][];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the ids of up to limit users whose names match every word of the query within the allowed edits, best
+    // score (total edits) first and then in index order. Short words get fewer edits: none up to 2 characters and at
+    // most one up to 5, whatever maxEdits asks for.
+    public long[] search(String query, int maxEdits, int limit) {
+        String[] tokens = tokens(query);
+        if (tokens.length == 0 || limit <= 0) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            // Every word is looked up in the trie; the word with the fewest candidate users drives the scoring
+            List<List<Match>> matchesPerToken = new ArrayList<>(tokens.length);
+            int driver = 0;
+            long fewest = Long.MAX_VALUE;
+            for (int t = 0; t < tokens.length; t++) {
+                List<Match> matches = new ArrayList<>();
+                trie.forEachWithin(tokens[t], allowedEdits(tokens[t], maxEdits),
+                        (node, distance) -> matches.add(new Match(node.postings, distance)));
+                if (matches.isEmpty()) {
+                    return new long[0];
+                }
+                matches.sort(Comparator.comparingInt(Match::distance));
+                matchesPerToken.add(matches);
+                long candidates = 0;
+                for (Match match : matches) {
+                    candidates += match.postings().size();
+                }
+                if (candidates < fewest) {
+                    fewest = candidates;
+                    driver = t;
+                }
+            }
+            List<Match> matches = matchesPerToken.get(driver);
+            // The other words add at least their closest match's distance to every score
+            int otherEdits = 0;
+            for (int t = 0; t < matchesPerToken.size(); t++) {
+                if (t != driver) {
+                    otherEdits += matchesPerToken.get(t).get(0).distance();
+                }
+            }
+
+            // Max-heap of the best ranks seen so far (score << 32 | ordinal)
+            PriorityQueue<Long> best = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+            Map<Integer, Long> rankByOrdinal = new HashMap<>();
+            for (Match match : matches) {
+                // Matches come by increasing distance, so once the lowest possible score cannot make the cut, stop
+                long minScore = (long) (match.distance() + otherEdits) << 32;
+                if (best.size() == limit && minScore > best.peek()) {
+                    break;
+                }
+                for (int i = 0; i < match.postings().size(); i++) {
+                    int ordinal = match.postings().get(i);
+                    if (best.size() == limit && (minScore | ordinal) >= best.peek()) {
+                        break;
+                    }
+                    int score = score(ordinal, matchesPerToken, driver, match.distance());
+                    if (score >= 0) {
+                        offer((long) score << 32 | ordinal, limit, best, rankByOrdinal);
+                    }
+                }
+            }
+            List<Long> ranked = new ArrayList<>(best);
+            ranked.sort(null);
+            long[] ids = new long[ranked.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = ordinals.id((int) ranked.get(i).longValue());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Match(IntList postings, int distance) {
+    }
+
+    // Total edits over all query words, or -1 when some word matches none of the user's names closely enough
+    private static int score(int ordinal, List<List<Match>> matchesPerToken, int driver, int driverDistance) {
+        int score = driverDistance;
+        for (int t = 0; t < matchesPerToken.size(); t++) {
+            if (t == driver) {
+                continue;
+            }
+            int distance = -1;
+            // Matches are sorted by distance, so the first one containing the user is its best
+            for (Match match : matchesPerToken.get(t)) {
+                if (match.postings().containsSorted(ordinal)) {
+                    distance = match.distance();
+                    break;
+                }
+            }
+            if (distance < 0) {
+                return -1;
+            }
+            score += distance;
+        }
+        return score;
+    }
+
+    private static void offer(long rank, int limit, PriorityQueue<Long> best, Map<Integer, Long> rankByOrdinal) {
+        int ordinal = (int) rank;
+        Long previous = rankByOrdinal.get(ordinal);
+        if (previous != null) {
+            if (rank >= previous) {
+                return;
+            }
+            best.remove(previous);
+        } else if (best.size() == limit) {
+            if (rank >= best.peek()) {
+                return;
+            }
+            rankByOrdinal.remove((int) best.poll().longValue());
+        }
+        best.add(rank);
+        rankByOrdinal.put(ordinal, rank);
+    }
+
+    static int allowedEdits(String token, int maxEdits) {
+        int byLength = token.length() <= 2 ? 0 : token.length() <= 5 ? 1 : MAX_EDITS;
+        return Math.max(0, Math.min(Math.min(maxEdits, MAX_EDITS), byLength));
+    }
+
+    private void removeLocked(long id) {
+        int ordinal = ordinals.release(id);
+        if (ordinal < 0) {
+            return;
+        }
+        for (String word : words[ordinal]) {
+            trie.delete(word, ordinal);
+        }
+        words[ordinal] = null;
+    }
+
+    private static String[] words(User user) {
+        Set<String> words = new LinkedHashSet<>();
+        words.addAll(Arrays.asList(tokens(user.getFirstName())));
+        words.addAll(Arrays.asList(tokens(user.getLastName())));
+        return words.toArray(new String[0]);
+    }
+
+    private static String[] tokens(String value) {
+        String normalized = NGramIndex.normalize(value);
+        return normalized.isEmpty() ? new String[0] : normalized.split("\\s+");
+    }
+}
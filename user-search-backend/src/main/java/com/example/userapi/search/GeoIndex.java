@@ -0,0 +1,333 @@
+package com.example.userapi.search;
+
+import com.example.userapi.model.User;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Spatial index over address coordinates: a fixed lat/lng grid of CELL_DEGREES cells, each holding the ordinals of
+// the users inside it, with the coordinates kept in primitive arrays. A radius query only scans the cells overlapping
+// the bounding box of the circle and ranks the users in it by haversine distance; a nearest query widens the radius
+// until it holds k users.
+@Component
+public class GeoIndex implements UserIndex {
+
+    // Mean earth radius and the largest possible distance between two points, in km
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    public static final double MAX_DISTANCE_KM = Math.PI * EARTH_RADIUS_KM;
+
+    static final double CELL_DEGREES = 0.5;
+    private static final int ROWS = (int) (180 / CELL_DEGREES);
+    private static final int COLUMNS = (int) (360 / CELL_DEGREES);
+
+    // First radius tried by a nearest query, multiplied by RADIUS_GROWTH until enough users are inside
+    private static final double INITIAL_NEAREST_RADIUS_KM = 50;
+    private static final double RADIUS_GROWTH = 4;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final DocOrdinals ordinals = new DocOrdinals();
+    private final IntList[] cells = new IntList[ROWS * COLUMNS];
+
+    // Coordinates per ordinal in radians, with the cosine of the latitude that every haversine term needs
+    private double[] lats = new double[1024];
+    private double[] lngs = new double[1024];
+    private double[] cosLats = new double[1024];
+    // Grid cell per ordinal, needed to remove a user
+    private int[] cellsByOrdinal = new int[1024];
+
+    @Override
+    public void index(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        User.Coordinates coordinates = user.getAddress() == null ? null : user.getAddress().getCoordinates();
+        boolean located = coordinates != null && isValid(coordinates.getLat(), coordinates.getLng());
+        lock.writeLock().lock();
+        try {
+            removeLocked(user.getId());
+            if (!located) {
+                return;
+            }
+            int ordinal = ordinals.allocate(user.getId());
+            if (ordinal >= lats.length) {
+                lats = Arrays.copyOf(lats, lats.length << 1);
+                lngs = Arrays.copyOf(lngs, lngs.length << 1);
+                cosLats = Arrays.copyOf(cosLats, cosLats.length << 1);
+                cellsByOrdinal = Arrays.copyOf(cellsByOrdinal, cellsByOrdinal.length << 1);
+            }
+            lats[ordinal] = Math.toRadians(coordinates.getLat());
+            lngs[ordinal] = Math.toRadians(coordinates.getLng());
+            cosLats[ordinal] = Math.cos(lats[ordinal]);
+            int cell = cell(coordinates.getLat(), coordinates.getLng());
+            cellsByOrdinal[ordinal] = cell;
+            if (cells[cell] == null) {
+                cells[cell] = new IntList(4);
+            }
+            cells[cell].insertSorted(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            Arrays.fill(cells, null);
+            lats = new double[1024];
+            lngs = new double[1024];
+            cosLats = new double[1024];
+            cellsByOrdinal = new int[1024];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns the ids of up to limit users within radiusKm of the point, nearest first
+    public long[] within(double lat, double lng, double radiusKm, int limit) {
+        if (limit <= 0 || radiusKm < 0) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            return ids(collect(lat, lng, radiusKm, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns the ids of the k users nearest to the point, nearest first
+    public long[] nearest(double lat, double lng, int k) {
+        if (k <= 0) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            // Once a circle holds k users, nobody outside it can be nearer than the k-th user inside
+            double radiusKm = INITIAL_NEAREST_RADIUS_KM;
+            while (true) {
+                NearestHeap nearest = collect(lat, lng, radiusKm, k);
+                if (nearest.size == k || radiusKm >= MAX_DISTANCE_KM) {
+                    return ids(nearest);
+                }
+                radiusKm = Math.min(MAX_DISTANCE_KM, radiusKm * RADIUS_GROWTH);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static boolean isValid(Double lat, Double lng) {
+        return lat != null && lng != null && lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180;
+    }
+
+    // Great-circle distance between two points given in degrees, in km
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double lat1Radians = Math.toRadians(lat1);
+        double lat2Radians = Math.toRadians(lat2);
+        return distanceKm(haversine(lat1Radians, Math.cos(lat1Radians), Math.toRadians(lng1),
+                lat2Radians, Math.cos(lat2Radians), Math.toRadians(lng2)));
+    }
+
+    // The haversine term of two points in radians: it grows with the distance, so users are filtered and ranked on it
+    // directly and only a radius is converted, saving the square root and arcsine per user
+    private static double haversine(double lat1, double cosLat1, double lng1, double lat2, double cosLat2, double lng2) {
+        double sinLat = Math.sin((lat2 - lat1) / 2);
+        double sinLng = Math.sin((lng2 - lng1) / 2);
+        return sinLat * sinLat + cosLat1 * cosLat2 * sinLng * sinLng;
+    }
+
+    private static double distanceKm(double haversine) {
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(haversine)));
+    }
+
+    // Scans the cells overlapping the bounding box of the circle, keeping the limit nearest users inside it
+    private NearestHeap collect(double lat, double lng, double radiusKm, int limit) {
+        NearestHeap nearest = new NearestHeap(limit);
+        double sinRadius = Math.sin(Math.min(Math.PI, radiusKm / EARTH_RADIUS_KM) / 2);
+        double maxHaversine = sinRadius * sinRadius;
+        double latRadians = Math.toRadians(lat);
+        double cosLat = Math.cos(latRadians);
+        double lngRadians = Math.toRadians(lng);
+        double radiusDegrees = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+        double minLat = lat - radiusDegrees;
+        double maxLat = lat + radiusDegrees;
+        // Longitude span of the circle at its widest; a circle reaching a pole covers every longitude
+        double lngSpan = 360;
+        if (minLat > -90 && maxLat < 90) {
+            double ratio = Math.sin(radiusKm / EARTH_RADIUS_KM) / Math.cos(Math.toRadians(lat));
+            if (ratio < 1) {
+                lngSpan = 2 * Math.toDegrees(Math.asin(ratio));
+            }
+        }
+        int fromRow = row(Math.max(-90, minLat));
+        int toRow = row(Math.min(90, maxLat));
+        int fromColumn;
+        int columnCount;
+        if (lngSpan >= 360 - CELL_DEGREES) {
+            fromColumn = 0;
+            columnCount = COLUMNS;
+        } else {
+            fromColumn = column(lng - lngSpan / 2);
+            columnCount = Math.min(COLUMNS, Math.floorMod(column(lng + lngSpan / 2) - fromColumn, COLUMNS) + 1);
+        }
+        double minLatRadians = Math.toRadians(minLat);
+        double maxLatRadians = Math.toRadians(maxLat);
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int c = 0; c < columnCount; c++) {
+                IntList cell = cells[row * COLUMNS + (fromColumn + c) % COLUMNS];
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size(); i++) {
+                    int ordinal = cell.get(i);
+                    // Cheap latitude band check before the trigonometry
+                    if (lats[ordinal] < minLatRadians || lats[ordinal] > maxLatRadians) {
+                        continue;
+                    }
+                    double haversine = haversine(latRadians, cosLat, lngRadians, lats[ordinal], cosLats[ordinal],
+                            lngs[ordinal]);
+                    if (haversine <= maxHaversine) {
+                        nearest.offer(ordinal, haversine);
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private long[] ids(NearestHeap nearest) {
+        int[] sorted = nearest.drainNearestFirst();
+        long[] ids = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            ids[i] = ordinals.id(sorted[i]);
+        }
+        return ids;
+    }
+
+    private void removeLocked(long id) {
+        int ordinal = ordinals.release(id);
+        if (ordinal < 0) {
+            return;
+        }
+        IntList cell = cells[cellsByOrdinal[ordinal]];
+        if (cell != null) {
+            cell.removeSorted(ordinal);
+        }
+    }
+
+    private static int cell(double lat, double lng) {
+        return row(lat) * COLUMNS + column(lng);
+    }
+
+    private static int row(double lat) {
+        return Math.min(ROWS - 1, (int) ((lat + 90) / CELL_DEGREES));
+    }
+
+    private static int column(double lng) {
+        return Math.floorMod((int) Math.floor((lng + 180) / CELL_DEGREES), COLUMNS);
+    }
+
+    // Bounded max-heap on (haversine term, ordinal) over primitive arrays, so the farthest of the kept users is evicted first
+    private static final class NearestHeap {
+
+        private final int[] ordinals;
+        private final double[] distances;
+        private int size;
+
+        NearestHeap(int capacity) {
+            ordinals = new int[capacity];
+            distances = new double[capacity];
+        }
+
+        void offer(int ordinal, double distance) {
+            if (size < ordinals.length) {
+                ordinals[size] = ordinal;
+                distances[size] = distance;
+                siftUp(size++);
+            } else if (farther(0, ordinal, distance)) {
+                ordinals[0] = ordinal;
+                distances[0] = distance;
+                siftDown(0, size);
+            }
+        }
+
+        // Empties the heap, returning its ordinals nearest first
+        int[] drainNearestFirst() {
+            int[] sorted = new int[size];
+            for (int last = size - 1; last >= 0; last--) {
+                sorted[last] = ordinals[0];
+                swap(0, last);
+                siftDown(0, last);
+            }
+            size = 0;
+            return sorted;
+        }
+
+        // Whether the entry at index i ranks after (distance, ordinal)
+        private boolean farther(int i, int ordinal, double distance) {
+            return distances[i] > distance || (distances[i] == distance && ordinals[i] > ordinal);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!farther(i, ordinals[parent], distances[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int end) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < end && farther(left, ordinals[largest], distances[largest])) {
+                    largest = left;
+                }
+                if (right < end && farther(right, ordinals[largest], distances[largest])) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int ordinal = ordinals[a];
+            ordinals[a] = ordinals[b];
+            ordinals[b] = ordinal;
+            double distance = distances[a];
+            distances[a] = distances[b];
+            distances[b] = distance;
+        }
+    }
+}
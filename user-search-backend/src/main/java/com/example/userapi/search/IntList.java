@@ -0,0 +1,102 @@
+package com.example.userapi.search;
+
+import java.util.Arrays;
+
+// Growable, sorted array of primitive ints used as a posting list of document ordinals
+public class IntList {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this.values = EMPTY;
+    }
+
+    public IntList(int capacity) {
+        this.values = capacity == 0 ? EMPTY : new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    // Appends a value; callers guarantee values arrive in ascending order, duplicates of the last value are dropped
+    public void append(int value) {
+        if (size > 0 && values[size - 1] == value) {
+            return;
+        }
+        ensureCapacity(size + 1);
+        values[size++] = value;
+    }
+
+    // Inserts a value at its sorted position, ignoring it if it is already present
+    public void insertSorted(int value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos >= 0) {
+            return;
+        }
+        pos = -pos - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(values, pos, values, pos + 1, size - pos);
+        values[pos] = value;
+        size++;
+    }
+
+    // Removes a value from the sorted list, returning whether it was present
+    public boolean removeSorted(int value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    public boolean containsSorted(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    // Intersects this sorted list with another, galloping through the larger one
+    public IntList intersect(IntList other) {
+        IntList small = size <= other.size ? this : other;
+        IntList large = small == this ? other : this;
+        IntList result = new IntList(small.size);
+        int from = 0;
+        for (int i = 0; i < small.size && from < large.size; i++) {
+            int pos = Arrays.binarySearch(large.values, from, large.size, small.values[i]);
+            if (pos >= 0) {
+                result.values[result.size++] = small.values[i];
+                from = pos + 1;
+            } else {
+                from = -pos - 1;
+            }
+        }
+        return result;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public void clear() {
+        values = EMPTY;
+        size = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, Math.max(capacity, Math.max(4, values.length + (values.length >> 1))));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.userapi.search;
+
+import com.example.userapi.model.User;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Trigram inverted index over first name, last name and SSN used to answer substring searches without a table scan
+@Component
+public class NGramIndex implements UserIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final DocOrdinals ordinals = new DocOrdinals();
+    private final Map<String, IntList> postings = new HashMap<>();
+
+    // Lower-cased searchable field values per ordinal, used to verify candidates and to serve short queries
+    private String[][] fields = new String[1024][];
+
+    @Override
+    public void index(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        String[] values = {normalize(user.getFirstName()), normalize(user.getLastName()), normalize(user.getSsn())};
+        lock.writeLock().lock();
+        try {
+            removeLocked(user.getId());
+            int ordinal = ordinals.allocate(user.getId());
+            if (ordinal >= fields.length) {
+                fields = Arrays.copyOf(fields, fields.length << 1);
+            }
+            fields[ordinal] = values;
+            for (String value : values) {
+                forEachGram(value, gram -> postings.computeIfAbsent(gram, g -> new IntList()).insertSorted(ordinal));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            postings.clear();
+            fields = new String[1024][];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns the ids of users whose first name, last name or SSN contains the query, ignoring case
+    public long[] search(String query) {
+        String needle = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (needle.length() < GRAM_LENGTH) {
+                return scan(needle);
+            }
+            List<IntList> lists = new ArrayList<>();
+            boolean[] missing = {false};
+            forEachGram(needle, gram -> {
+                IntList list = postings.get(gram);
+                if (list == null) {
+                    missing[0] = true;
+                } else {
+                    lists.add(list);
+                }
+            });
+            if (missing[0]) {
+                return new long[0];
+            }
+            lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+            IntList candidates = lists.get(0);
+            for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+                candidates = candidates.intersect(lists.get(i));
+            }
+            long[] ids = new long[candidates.size()];
+            int count = 0;
+            for (int i = 0; i < candidates.size(); i++) {
+                int ordinal = candidates.get(i);
+                // Trigram hits only prove the grams occur somewhere, so confirm the whole needle is present
+                if (matches(fields[ordinal], needle)) {
+                    ids[count++] = ordinals.id(ordinal);
+                }
+            }
+            return Arrays.copyOf(ids, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] scan(String needle) {
+        long[] ids = new long[ordinals.size()];
+        int count = 0;
+        for (int ordinal = 0; ordinal < ordinals.maxOrdinal(); ordinal++) {
+            if (ordinals.isLive(ordinal) && matches(fields[ordinal], needle)) {
+                ids[count++] = ordinals.id(ordinal);
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private void removeLocked(long id) {
+        int ordinal = ordinals.release(id);
+        if (ordinal < 0) {
+            return;
+        }
+        for (String value : fields[ordinal]) {
+            forEachGram(value, gram -> {
+                IntList list = postings.get(gram);
+                if (list != null && list.removeSorted(ordinal) && list.isEmpty()) {
+                    postings.remove(gram);
+                }
+            });
+        }
+        fields[ordinal] = null;
+    }
+
+    private static boolean matches(String[] values, String needle) {
+        for (String value : values) {
+            if (value.contains(needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void forEachGram(String value, Consumer<String> consumer) {
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            consumer.accept(value.substring(i, i + GRAM_LENGTH));
+        }
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.userapi.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Compressed prefix trie (radix tree) mapping terms to sorted int postings. Edges carry whole label strings, so a
+// chain of single-child nodes is stored as one node. Not thread-safe; the owning index guards it with its lock.
+class RadixTrie {
+
+    private final Node root = new Node("", 0);
+
+    void clear() {
+        root.clearChildren();
+        root.postings = null;
+    }
+
+    // Adds a posting to the term, splitting an edge when the term diverges inside its label
+    void insert(String term, int posting) {
+        Node node = root;
+        int offset = 0;
+        while (offset < term.length()) {
+            int slot = node.slot(term.charAt(offset));
+            if (slot < 0) {
+                Node leaf = new Node(term.substring(offset), term.length());
+                leaf.addPosting(posting);
+                node.insertChild(-slot - 1, leaf);
+                return;
+            }
+            Node child = node.children[slot];
+            int common = commonPrefix(child.label, term, offset);
+            if (common < child.label.length()) {
+                // Split the edge so the shared part of the label gets its own node
+                Node middle = new Node(child.label.substring(0, common), node.depth + common);
+                child.label = child.label.substring(common);
+                middle.insertChild(0, child);
+                node.children[slot] = middle;
+                child = middle;
+            }
+            node = child;
+            offset += common;
+        }
+        node.addPosting(posting);
+    }
+
+    // Removes a posting from the term, pruning nodes that no longer lead to any posting
+    void delete(String term, int posting) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int offset = 0;
+        path.add(node);
+        while (offset < term.length()) {
+            int slot = node.slot(term.charAt(offset));
+            if (slot < 0) {
+                return;
+            }
+            node = node.children[slot];
+            if (!term.startsWith(node.label, offset)) {
+                return;
+            }
+            offset += node.label.length();
+            path.add(node);
+        }
+        if (node.postings == null || !node.postings.removeSorted(posting)) {
+            return;
+        }
+        if (node.postings.isEmpty()) {
+            node.postings = null;
+        }
+        // Prune empty leaves and merge nodes left with a single child back into their edge
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node current = path.get(i);
+            Node parent = path.get(i - 1);
+            if (current.postings != null) {
+                return;
+            }
+            if (current.childCount == 0) {
+                parent.removeChild(parent.slot(current.label.charAt(0)));
+                continue;
+            }
+            if (current.childCount == 1) {
+                Node only = current.children[0];
+                current.label = current.label + only.label;
+                current.depth = only.depth;
+                current.postings = only.postings;
+                current.keys = only.keys;
+                current.children = only.children;
+                current.childCount = only.childCount;
+            }
+            return;
+        }
+    }
+
+    // Returns the node whose subtree holds exactly the terms starting with the prefix, or null when there are none
+    Node find(String prefix) {
+        Node node = root;
+        int offset = 0;
+        while (offset < prefix.length()) {
+            int slot = node.slot(prefix.charAt(offset));
+            if (slot < 0) {
+                return null;
+            }
+            Node child = node.children[slot];
+            int remaining = prefix.length() - offset;
+            if (remaining <= child.label.length()) {
+                return child.label.startsWith(prefix.substring(offset)) ? child : null;
+            }
+            if (!prefix.startsWith(child.label, offset)) {
+                return null;
+            }
+            node = child;
+            offset += child.label.length();
+        }
+        return node;
+    }
+
+    // Visits every term within maxEdits of the query, counting insertions, deletions, substitutions and transpositions
+    // of adjacent characters (optimal string alignment distance). Subtrees are skipped as soon as no extension of
+    // their prefix can get back within maxEdits.
+    void forEachWithin(String query, int maxEdits, TermVisitor visitor) {
+        int[] row = new int[query.length() + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = i;
+        }
+        for (int i = 0; i < root.childCount; i++) {
+            walk(root.children[i], query, maxEdits, row, null, (char) 0, visitor);
+        }
+    }
+
+    interface TermVisitor {
+        void visit(Node node, int distance);
+    }
+
+    private static void walk(Node node, String query, int maxEdits, int[] row, int[] previousRow, char previousChar,
+                             TermVisitor visitor) {
+        for (int c = 0; c < node.label.length(); c++) {
+            char ch = node.label.charAt(c);
+            int[] next = new int[row.length];
+            next[0] = row[0] + 1;
+            int min = next[0];
+            for (int i = 1; i < row.length; i++) {
+                char q = query.charAt(i - 1);
+                int distance = Math.min(Math.min(next[i - 1] + 1, row[i] + 1), row[i - 1] + (q == ch ? 0 : 1));
+                if (previousRow != null && i > 1 && q == previousChar && query.charAt(i - 2) == ch) {
+                    distance = Math.min(distance, previousRow[i - 2] + 1);
+                }
+                next[i] = distance;
+                min = Math.min(min, distance);
+            }
+            if (min > maxEdits) {
+                return;
+            }
+            previousRow = row;
+            previousChar = ch;
+            row = next;
+        }
+        int distance = row[row.length - 1];
+        if (node.postings != null && distance <= maxEdits) {
+            visitor.visit(node, distance);
+        }
+        for (int i = 0; i < node.childCount; i++) {
+            walk(node.children[i], query, maxEdits, row, previousRow, previousChar, visitor);
+        }
+    }
+
+    private static int commonPrefix(String label, String term, int offset) {
+        int max = Math.min(label.length(), term.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == term.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // A trie node; children are kept sorted by the first character of their edge label
+    static final class Node {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        String label;
+        int depth;
+        IntList postings;
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        int childCount;
+
+        Node(String label, int depth) {
+            this.label = label;
+            this.depth = depth;
+        }
+
+        // Returns the slot of the child starting with c, or (-(insertion point) - 1) when there is none
+        int slot(char c) {
+            return Arrays.binarySearch(keys, 0, childCount, c);
+        }
+
+        void insertChild(int slot, Node child) {
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount << 1);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, slot, keys, slot + 1, childCount - slot);
+            System.arraycopy(children, slot, children, slot + 1, childCount - slot);
+            keys[slot] = child.label.charAt(0);
+            children[slot] = child;
+            childCount++;
+        }
+
+        void removeChild(int slot) {
+            System.arraycopy(keys, slot + 1, keys, slot, childCount - slot - 1);
+            System.arraycopy(children, slot + 1, children, slot, childCount - slot - 1);
+            children[--childCount] = null;
+        }
+
+        void clearChildren() {
+            keys = NO_KEYS;
+            children = NO_CHILDREN;
+            childCount = 0;
+        }
+
+        void addPosting(int posting) {
+            if (postings == null) {
+                postings = new IntList(1);
+            }
+            postings.insertSorted(posting);
+        }
+    }
+}
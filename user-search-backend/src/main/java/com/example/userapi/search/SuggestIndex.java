@@ -0,0 +1,191 @@
+package com.example.userapi.search;
+
+import com.example.userapi.model.User;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Prefix trie over first name, last name, username and email used for typeahead. Every term is stored once; a node
+// holds the postings of the term ending at it, encoded as field << 29 | ordinal so that they sort in rank order.
+// Suggestions are collected best-first by term length, so the shortest completions of a prefix are found without
+// walking the whole subtree or every posting of a common name.
+@Component
+public class SuggestIndex implements UserIndex {
+
+    private static final int ORDINAL_BITS = 29;
+    private static final int ORDINAL_MASK = (1 << ORDINAL_BITS) - 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final DocOrdinals ordinals = new DocOrdinals();
+    private final RadixTrie trie = new RadixTrie();
+
+    // Indexed terms per ordinal (needed to remove a user) and the display name returned with a suggestion
+    private String[][] terms = new String[1024][];
+    private String[] displayNames = new String[1024];
+
+    // A suggested user: its id and "firstName lastName"
+    public record Suggestion(long id, String displayName) {
+    }
+
+    @Override
+    public void index(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        // Field order doubles as the tie-break rank when two completions have the same length
+        String[] values = {NGramIndex.normalize(user.getFirstName()), NGramIndex.normalize(user.getLastName()),
+                NGramIndex.normalize(user.getUsername()), NGramIndex.normalize(user.getEmail())};
+        String displayName = displayName(user);
+        lock.writeLock().lock();
+        try {
+            removeLocked(user.getId());
+            int ordinal = ordinals.allocate(user.getId());
+            if (ordinal >= terms.length) {
+                terms = Arrays.copyOf(terms, terms.length << 1);
+                displayNames = Arrays.copyOf(displayNames, displayNames.length << 1);
+            }
+            terms[ordinal] = values;
+            displayNames[ordinal] = displayName;
+            for (int field = 0; field < values.length; field++) {
+                if (!values[field].isEmpty()) {
+                    trie.insert(values[field], field << ORDINAL_BITS | ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            trie.clear();
+            terms = new String[1024][];
+            displayNames = new String[1024];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns up to k users with a first name, last name, username or email starting with the prefix (ignoring case),
+    // shortest completion first, then by field (first name, last name, username, email) and index order
+    public List<Suggestion> suggest(String prefix, int k) {
+        String needle = NGramIndex.normalize(prefix);
+        if (needle.isEmpty() || k <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            RadixTrie.Node start = trie.find(needle);
+            if (start == null) {
+                return List.of();
+            }
+            // Max-heap of the best k ranks seen so far (term length << 32 | posting), so the worst can be evicted
+            PriorityQueue<Long> best = new PriorityQueue<>(k + 1, Comparator.reverseOrder());
+            Map<Integer, Long> rankByOrdinal = new HashMap<>();
+            PriorityQueue<RadixTrie.Node> frontier = new PriorityQueue<>(
+                    Comparator.comparingInt((RadixTrie.Node node) -> node.depth));
+            frontier.add(start);
+            while (!frontier.isEmpty()) {
+                RadixTrie.Node node = frontier.poll();
+                // Nodes come out by increasing term length, so nothing deeper can beat a full heap's worst entry
+                if (best.size() == k && node.depth > best.peek() >>> 32) {
+                    break;
+                }
+                if (node.postings != null) {
+                    for (int i = 0; i < node.postings.size(); i++) {
+                        long rank = (long) node.postings.get(i) | ((long) node.depth << 32);
+                        // Postings are sorted in rank order, so the rest of this node cannot make the cut either
+                        if (!offer(rank, k, best, rankByOrdinal)) {
+                            break;
+                        }
+                    }
+                }
+                for (int i = 0; i < node.childCount; i++) {
+                    frontier.add(node.children[i]);
+                }
+            }
+            List<Long> ranked = new ArrayList<>(best);
+            ranked.sort(null);
+            List<Suggestion> suggestions = new ArrayList<>(ranked.size());
+            for (long rank : ranked) {
+                int ordinal = (int) rank & ORDINAL_MASK;
+                suggestions.add(new Suggestion(ordinals.id(ordinal), displayNames[ordinal]));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Keeps a user's best match only, returning false when the rank does not make it into a full heap
+    private static boolean offer(long rank, int k, PriorityQueue<Long> best, Map<Integer, Long> rankByOrdinal) {
+        int ordinal = (int) rank & ORDINAL_MASK;
+        Long previous = rankByOrdinal.get(ordinal);
+        if (previous != null) {
+            if (rank >= previous) {
+                return true;
+            }
+            best.remove(previous);
+        } else if (best.size() == k) {
+            if (rank >= best.peek()) {
+                return false;
+            }
+            rankByOrdinal.remove((int) best.poll().longValue() & ORDINAL_MASK);
+        }
+        best.add(rank);
+        rankByOrdinal.put(ordinal, rank);
+        return true;
+    }
+
+    private static String displayName(User user) {
+        String first = user.getFirstName() == null ? "" : user.getFirstName().trim();
+        String last = user.getLastName() == null ? "" : user.getLastName().trim();
+        String name = (first + " " + last).trim();
+        return name.isEmpty() && user.getUsername() != null ? user.getUsername() : name;
+    }
+
+    private void removeLocked(long id) {
+        int ordinal = ordinals.release(id);
+        if (ordinal < 0) {
+            return;
+        }
+        String[] values = terms[ordinal];
+        for (int field = 0; field < values.length; field++) {
+            if (!values[field].isEmpty()) {
+                trie.delete(values[field], field << ORDINAL_BITS | ordinal);
+            }
+        }
+        terms[ordinal] = null;
+        displayNames[ordinal] = null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.userapi.search;
+
+import com.example.userapi.model.User;
+
+// In-memory structure kept in sync with the users table by UserIndexer
+public interface UserIndex {
+
+    // Adds a user, replacing any previously indexed version with the same id
+    void index(User user);
+
+    // Drops a user from the index; unknown ids are ignored
+    void remove(long id);
+
+    // Drops every indexed user, used before a full rebuild
+    void clear();
+}
@@ -0,0 +1,65 @@
+package com.example.userapi.search;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+// Keeps every in-memory UserIndex consistent with the users table. The indexes are built by the last application
+// runner, after a snapshot restore, so the application only reports ready once searches can be answered.
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class UserIndexer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserIndexer.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private List<UserIndex> indexes;
+
+    // Builds the indexes from the database before the application reports ready
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            logger.info("Indexed {} users on startup.", rebuild().block());
+        } catch (RuntimeException e) {
+            logger.warn("Could not build user indexes on startup: {}", e.getMessage());
+        }
+    }
+
+    // Clears the indexes and reloads them from the database, emitting the number of indexed users
+    public Mono<Long> rebuild() {
+        return Mono.fromRunnable(() -> indexes.forEach(UserIndex::clear))
+                .thenMany(userRepository.findAll())
+                .doOnNext(this::index)
+                .count();
+    }
+
+    public void index(User user) {
+        for (UserIndex index : indexes) {
+            index.index(user);
+        }
+    }
+
+    public void indexAll(Collection<User> users) {
+        users.forEach(this::index);
+    }
+
+    public void remove(long id) {
+        for (UserIndex index : indexes) {
+            index.remove(id);
+        }
+    }
+}
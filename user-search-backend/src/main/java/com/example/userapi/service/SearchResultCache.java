@@ -0,0 +1,84 @@
+package com.example.userapi.service;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserProjection;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Single-flight layer for /search: concurrent identical queries share one in-flight load, and its result is kept
+// for a short ttl so a burst of the same query costs a single database round trip. Queries are keyed the way the
+// trigram index normalizes them (trimmed, lower case), and projected searches (?fields=) by their columns as well,
+// apart from the whole users of the same query. Only results of up to maxResults users are shared, since a
+// shared result is buffered whole; larger ones stream straight from the database. Entries are weighed by their
+// number of users, which bounds the memory held, and every write clears the cache, in-flight loads included.
+@Component
+public class SearchResultCache {
+
+    private final AsyncCache<Key, List<?>> results;
+    private final int maxResults;
+
+    // A normalized query and the projected columns, or null columns for whole users
+    private record Key(String query, List<String> columns) {
+    }
+
+    public SearchResultCache(@Value("${users.search.cache.max-users:100000}") long maxUsers,
+                             @Value("${users.search.cache.max-results:1000}") int maxResults,
+                             @Value("${users.search.cache.ttl:2s}") Duration ttl) {
+        this.maxResults = maxResults;
+        this.results = Caffeine.newBuilder()
+                .maximumWeight(maxUsers)
+                .weigher((Key key, List<?> users) -> users.size())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    // Returns the users matching the query, of which the index found matches. Up to maxResults it joins the load
+    // already in flight for the query or starts one; failed loads are not cached. Above it the loader streams
+    // the users to this caller alone
+    public Flux<User> get(String query, int matches, Supplier<Flux<User>> loader) {
+        return get(new Key(normalize(query), null), matches, loader);
+    }
+
+    // Like get, for the users of the query read with only the projected columns
+    public Flux<Map<String, Object>> get(String query, UserProjection projection, int matches,
+                                         Supplier<Flux<Map<String, Object>>> loader) {
+        return get(new Key(normalize(query), projection.getColumnNames()), matches, loader);
+    }
+
+    public void invalidateAll() {
+        results.synchronous().invalidateAll();
+    }
+
+    // Exposes the underlying cache so it can be bound to metrics
+    public Cache<?, ?> cache() {
+        return results.synchronous();
+    }
+
+    // Every entry under a key holds the element type of the get overload that builds that kind of key
+    @SuppressWarnings("unchecked")
+    private <T> Flux<T> get(Key key, int matches, Supplier<Flux<T>> loader) {
+        if (matches > maxResults) {
+            return Flux.defer(loader);
+        }
+        CompletableFuture<List<?>> future = results.get(key,
+                (missing, executor) -> loader.get().collectList().<List<?>>map(users -> users).toFuture());
+        return Mono.fromFuture(future, true).flatMapIterable(users -> (List<T>) users);
+    }
+
+    private static String normalize(String query) {
+        return query.trim().toLowerCase(Locale.ROOT);
+    }
+}
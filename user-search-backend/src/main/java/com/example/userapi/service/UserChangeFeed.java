@@ -0,0 +1,259 @@
+package com.example.userapi.service;
+
+import com.example.userapi.model.User;
+import com.example.userapi.model.UserChange;
+import com.example.userapi.repository.UserChangeStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Change feed of the users: every write appends one change per user with the next sequence number to a ring of the
+// last capacity changes. Subscribers read the ring from their own position at the pace they request, so a slow one
+// never holds back writers or other subscribers; one whose next change has been overwritten is told to resync.
+// With persist the changes are also written in batches to user_changes and reloaded on startup, so sequence numbers
+// continue across restarts. The feed is per node: with several nodes each has its own sequence.
+// Depends on the schema migrator, which creates user_changes before the persisted changes are reloaded.
+@Component
+@DependsOn("schemaMigrator")
+public class UserChangeFeed implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeFeed.class);
+
+    // Changes handed to a subscriber per read of the ring, and buffered per subscriber ahead of its consumer
+    private static final int READ_CHUNK = 256;
+
+    // Changes per batched INSERT when persisting
+    private static final int PERSIST_BATCH = 500;
+
+    private final UserChangeStore changeStore;
+    private final Duration flushInterval;
+    private final UserChange[] ring;
+    private final Set<Tail> tails = ConcurrentHashMap.newKeySet();
+
+    // Changes not yet written to user_changes, bounded by the ring capacity; null unless persisted
+    private final Sinks.Many<UserChange> unpersisted;
+    private CompletableFuture<Void> persisted;
+
+    // Guarded by this: sequence number of the next change and of the oldest change still in the ring
+    private long nextSeq = 1;
+    private long oldestSeq = 1;
+
+    // Positions the feed can serve when a subscriber asks to resume from an unavailable one
+    public record Resync(long oldestSeq, long latestSeq) {
+    }
+
+    public static class ResyncRequiredException extends RuntimeException {
+
+        private final Resync resync;
+
+        ResyncRequiredException(long since, Resync resync) {
+            super("Cannot resume after change " + since + "; changes " + resync.oldestSeq() + " to "
+                    + resync.latestSeq() + " are available");
+            this.resync = resync;
+        }
+
+        public Resync resync() {
+            return resync;
+        }
+    }
+
+    public UserChangeFeed(UserChangeStore changeStore,
+                          @Value("${users.changes.capacity:10000}") int capacity,
+                          @Value("${users.changes.persist:false}") boolean persist,
+                          @Value("${users.changes.flush-interval:200ms}") Duration flushInterval) {
+        this.changeStore = changeStore;
+        this.flushInterval = flushInterval;
+        this.ring = new UserChange[capacity];
+        this.unpersisted = persist
+                ? Sinks.many().unicast().onBackpressureBuffer(Queues.<UserChange>get(capacity).get())
+                : null;
+    }
+
+    // Reloads the persisted changes and starts writing new ones
+    @Override
+    public void afterPropertiesSet() {
+        if (unpersisted == null) {
+            return;
+        }
+        List<UserChange> stored = changeStore.latest(ring.length).collectList().block();
+        synchronized (this) {
+            for (UserChange change : stored) {
+                // After a gap (changes dropped while the store was unavailable) only the changes that follow it
+                // can be replayed
+                if (change.getSeq() != nextSeq) {
+                    oldestSeq = change.getSeq();
+                }
+                ring[slot(change.getSeq())] = change;
+                nextSeq = change.getSeq() + 1;
+            }
+        }
+        logger.info("Reloaded {} changes, resuming the change feed at {}", stored.size(), latestSeq());
+        persisted = unpersisted.asFlux()
+                .bufferTimeout(PERSIST_BATCH, flushInterval, true)
+                .concatMap(batch -> changeStore.append(batch)
+                        .then(changeStore.trim(batch.get(batch.size() - 1).getSeq() - ring.length))
+                        .onErrorResume(e -> {
+                            logger.warn("Failed to persist {} changes: {}", batch.size(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then()
+                .toFuture();
+    }
+
+    // Flushes the changes not yet persisted and ends the open subscriptions
+    @Override
+    public void destroy() throws Exception {
+        tails.forEach(tail -> tail.sink.complete());
+        if (unpersisted == null) {
+            return;
+        }
+        synchronized (this) {
+            unpersisted.tryEmitComplete();
+        }
+        if (persisted != null) {
+            persisted.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // Method to record that the given users were inserted or updated
+    public void upserted(Collection<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        synchronized (this) {
+            for (User user : users) {
+                append(new UserChange(nextSeq, UserChange.Type.UPSERT, user.getId(), now, user));
+            }
+        }
+        tails.forEach(Tail::drain);
+    }
+
+    // Method to record that the user with the given id was deleted
+    public void deleted(long id) {
+        synchronized (this) {
+            append(new UserChange(nextSeq, UserChange.Type.DELETE, id, Instant.now(), null));
+        }
+        tails.forEach(Tail::drain);
+    }
+
+    // Sequence number of the latest change, 0 before the first one
+    public synchronized long latestSeq() {
+        return nextSeq - 1;
+    }
+
+    public int subscribers() {
+        return tails.size();
+    }
+
+    // Method to stream the changes after sequence number since: first those still in the ring, then new ones as
+    // they are written, each as requested downstream. Fails with ResyncRequiredException when since is older than
+    // the ring or newer than the latest change (e.g. a position from before a restart without persistence), or when
+    // the subscriber falls so far behind that its next change is overwritten
+    public Flux<UserChange> changesSince(long since) {
+        return Flux.<UserChange>create(sink -> {
+            synchronized (this) {
+                if (since > nextSeq - 1) {
+                    sink.error(new ResyncRequiredException(since, resync()));
+                    return;
+                }
+            }
+            Tail tail = new Tail(sink, since + 1);
+            tails.add(tail);
+            sink.onDispose(() -> tails.remove(tail));
+            sink.onRequest(requested -> tail.drain());
+        }).publishOn(Schedulers.parallel(), READ_CHUNK);
+    }
+
+    // Guarded by this
+    private void append(UserChange change) {
+        ring[slot(change.getSeq())] = change;
+        nextSeq++;
+        if (nextSeq - oldestSeq > ring.length) {
+            oldestSeq = nextSeq - ring.length;
+        }
+        if (unpersisted != null && unpersisted.tryEmitNext(change).isFailure()) {
+            logger.warn("Change {} was not persisted: {} changes are waiting to be written", change.getSeq(),
+                    ring.length);
+        }
+    }
+
+    // Up to max changes from sequence number from on; null when from has already left the ring
+    private synchronized List<UserChange> read(long from, int max) {
+        if (from < oldestSeq) {
+            return null;
+        }
+        int count = (int) Math.min(max, nextSeq - from);
+        List<UserChange> changes = new ArrayList<>(count);
+        for (long seq = from; seq < from + count; seq++) {
+            changes.add(ring[slot(seq)]);
+        }
+        return changes;
+    }
+
+    private synchronized Resync resync() {
+        return new Resync(oldestSeq, nextSeq - 1);
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % ring.length);
+    }
+
+    // Position of one subscriber. drain is called by writers and on requests from any thread; the wip counter lets
+    // one caller at a time emit, and makes it loop again for calls that arrived meanwhile
+    private final class Tail {
+
+        private final FluxSink<UserChange> sink;
+        private final AtomicInteger wip = new AtomicInteger();
+        private long next;
+
+        Tail(FluxSink<UserChange> sink, long next) {
+            this.sink = sink;
+            this.next = next;
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                long requested;
+                while (!sink.isCancelled() && (requested = sink.requestedFromDownstream()) > 0) {
+                    List<UserChange> changes = read(next, (int) Math.min(requested, READ_CHUNK));
+                    if (changes == null) {
+                        sink.error(new ResyncRequiredException(next - 1, resync()));
+                        return;
+                    }
+                    if (changes.isEmpty()) {
+                        break;
+                    }
+                    changes.forEach(sink::next);
+                    next += changes.size();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
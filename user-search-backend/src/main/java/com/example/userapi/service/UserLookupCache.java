@@ -0,0 +1,153 @@
+package com.example.userapi.service;
+
+import com.example.userapi.model.User;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Read-through cache for single-user lookups. Users are cached once, by id; emails are a second key that maps to
+// the id. An email key is checked against the cached user's current email on every hit, so a stale email key
+// (e.g. after an update changed the email) is dropped instead of served. Concurrent misses for the same id or
+// email collapse into a single database load. A user loaded by email is only cached when its id was not invalidated
+// while the load ran, as such a load may have read the user before the write that invalidated it.
+@Component
+public class UserLookupCache {
+
+    private final AsyncCache<Long, User> usersById;
+    private final Cache<String, Long> idsByEmail;
+    private final ConcurrentMap<String, EmailLoad> emailLoads = new ConcurrentHashMap<>();
+
+    // Generation of the latest invalidation per id (and of the latest invalidateAll), kept for the ttl so that it
+    // outlives any load that started before it
+    private final AtomicLong generation = new AtomicLong();
+    private final Cache<Long, Long> invalidatedAt;
+    private volatile long allInvalidatedAt;
+
+    public UserLookupCache(@Value("${users.cache.max-size:100000}") long maxSize,
+                           @Value("${users.cache.ttl:10m}") Duration ttl) {
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        this.idsByEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.invalidatedAt = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Returns the user with this id, loading and caching it on a miss
+    public Mono<User> getById(Long id, Function<Long, Mono<User>> loader) {
+        CompletableFuture<User> future = usersById.get(id, (key, executor) -> loader.apply(id).toFuture());
+        return Mono.fromFuture(future, true)
+                .doOnNext(this::rememberEmail);
+    }
+
+    // Returns the user with this email, resolving it through the cached id when the email key is known
+    public Mono<User> getByEmail(String email, Function<String, Mono<User>> emailLoader,
+                                 Function<Long, Mono<User>> idLoader) {
+        Long id = idsByEmail.getIfPresent(email);
+        if (id == null) {
+            return loadByEmail(email, emailLoader);
+        }
+        return getById(id, idLoader)
+                .filter(user -> email.equals(user.getEmail()))
+                .switchIfEmpty(Mono.defer(() -> {
+                    idsByEmail.asMap().remove(email, id);
+                    return loadByEmail(email, emailLoader);
+                }));
+    }
+
+    // Drops a user from the cache; email keys pointing at it fail validation on their next use
+    public void invalidate(long id) {
+        invalidatedAt.put(id, generation.incrementAndGet());
+        CompletableFuture<User> future = usersById.asMap().remove(id);
+        if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+            User user = future.getNow(null);
+            if (user != null && user.getEmail() != null) {
+                idsByEmail.asMap().remove(user.getEmail(), id);
+            }
+        }
+    }
+
+    public void invalidateEmail(String email) {
+        if (email != null) {
+            idsByEmail.invalidate(email);
+        }
+    }
+
+    public void invalidateAll() {
+        allInvalidatedAt = generation.incrementAndGet();
+        usersById.synchronous().invalidateAll();
+        idsByEmail.invalidateAll();
+    }
+
+    public Stats stats() {
+        CacheStats ids = usersById.synchronous().stats();
+        CacheStats emails = idsByEmail.stats();
+        return new Stats(ids.hitCount(), ids.missCount(), emails.hitCount(), emails.missCount(),
+                ids.loadCount(), ids.evictionCount() + emails.evictionCount(),
+                usersById.synchronous().estimatedSize());
+    }
+
+    // Exposes the underlying caches so they can be bound to metrics
+    public Cache<Long, User> idCache() {
+        return usersById.synchronous();
+    }
+
+    public Cache<String, Long> emailCache() {
+        return idsByEmail;
+    }
+
+    // Hit/miss counts per key type, database loads, evictions and the number of cached users
+    public record Stats(long idHits, long idMisses, long emailHits, long emailMisses,
+                        long loads, long evictions, long size) {
+    }
+
+    private Mono<User> loadByEmail(String email, Function<String, Mono<User>> loader) {
+        // The generation is read before the load starts, so any invalidation the load may have missed is newer
+        EmailLoad load = emailLoads.computeIfAbsent(email,
+                key -> new EmailLoad(generation.get(), loader.apply(email).toFuture()));
+        // Completion callbacks are attached outside computeIfAbsent because the load may already be complete. Callers
+        // only see the user once it has been recorded, so an invalidation that follows cannot be undone by the load
+        CompletableFuture<User> recorded = load.future().whenComplete((user, error) -> {
+            if (user != null && user.getId() != null && !invalidatedSince(user.getId(), load.generation())) {
+                usersById.asMap().putIfAbsent(user.getId(), load.future());
+                idsByEmail.put(email, user.getId());
+            }
+            emailLoads.remove(email, load);
+        });
+        return Mono.fromFuture(recorded, true);
+    }
+
+    private boolean invalidatedSince(long id, long loadGeneration) {
+        Long invalidated = invalidatedAt.getIfPresent(id);
+        return allInvalidatedAt > loadGeneration || (invalidated != null && invalidated > loadGeneration);
+    }
+
+    // An email load in flight and the invalidation generation when it started
+    private record EmailLoad(long generation, CompletableFuture<User> future) {
+    }
+
+    private void rememberEmail(User user) {
+        if (user.getEmail() != null && user.getId() != null) {
+            idsByEmail.put(user.getEmail(), user.getId());
+        }
+    }
+}
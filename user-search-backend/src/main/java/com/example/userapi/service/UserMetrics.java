@@ -0,0 +1,79 @@
+package com.example.userapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Application meters for imports and searches; HTTP and repository timings come from the Actuator auto-configuration
+@Component
+public class UserMetrics {
+
+    private final Counter importedUsers;
+    private final Counter importedBatches;
+    private final Timer importBatchTimer;
+    private final Timer importTimer;
+    private final DistributionSummary searchResults;
+    private final DistributionSummary pagedSearchMatches;
+
+    public UserMetrics(MeterRegistry registry, UserLookupCache userLookupCache, SearchResultCache searchResultCache,
+                       UserChangeFeed userChangeFeed) {
+        this.importedUsers = Counter.builder("users.import.rows")
+                .description("Users written by imports")
+                .baseUnit("rows")
+                .register(registry);
+        this.importedBatches = Counter.builder("users.import.batches")
+                .description("Batches written by imports")
+                .register(registry);
+        this.importBatchTimer = Timer.builder("users.import.batch")
+                .description("Time to upsert one import batch")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.importTimer = Timer.builder("users.import")
+                .description("Duration of whole imports")
+                .register(registry);
+        this.searchResults = DistributionSummary.builder("users.search.results")
+                .description("Number of users returned by a search")
+                .baseUnit("users")
+                .serviceLevelObjectives(1, 10, 100, 1_000, 10_000)
+                .register(registry);
+        this.pagedSearchMatches = DistributionSummary.builder("users.search.page.matches")
+                .description("Number of index matches behind a paged search")
+                .baseUnit("users")
+                .serviceLevelObjectives(1, 10, 100, 1_000, 10_000)
+                .register(registry);
+
+        CaffeineCacheMetrics.monitor(registry, userLookupCache.idCache(), "users.by-id");
+        CaffeineCacheMetrics.monitor(registry, userLookupCache.emailCache(), "users.by-email");
+        CaffeineCacheMetrics.monitor(registry, searchResultCache.cache(), "users.search");
+        Gauge.builder("users.changes.seq", userChangeFeed, UserChangeFeed::latestSeq)
+                .description("Sequence number of the latest change in the change feed")
+                .register(registry);
+        Gauge.builder("users.changes.subscribers", userChangeFeed, UserChangeFeed::subscribers)
+                .description("Open change feed streams")
+                .register(registry);
+    }
+
+    public void recordImportBatch(int users, long elapsedNanos) {
+        importedUsers.increment(users);
+        importedBatches.increment();
+        importBatchTimer.record(Duration.ofNanos(elapsedNanos));
+    }
+
+    public void recordImport(long elapsedMillis) {
+        importTimer.record(Duration.ofMillis(elapsedMillis));
+    }
+
+    public void recordSearchResults(long users) {
+        searchResults.record(users);
+    }
+
+    public void recordPagedSearchMatches(long matches) {
+        pagedSearchMatches.record(matches);
+    }
+}
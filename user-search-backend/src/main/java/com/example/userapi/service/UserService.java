@@ -1,19 +1,49 @@
 package com.example.userapi.service;
 
 import com.example.userapi.exception.UserNotFoundException;
+import com.example.userapi.importer.ImportProgress;
+import com.example.userapi.importer.UserSource;
+import com.example.userapi.model.BatchWriteResult;
 import com.example.userapi.model.User;
+import com.example.userapi.model.UserFilter;
+import com.example.userapi.model.UserPage;
+import com.example.userapi.repository.UserCursor;
+import com.example.userapi.repository.UserPatch;
+import com.example.userapi.repository.UserProjection;
 import com.example.userapi.repository.UserRepository;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.userapi.repository.UserSort;
+import com.example.userapi.search.AttributeIndex;
+import com.example.userapi.search.FuzzyIndex;
+import com.example.userapi.search.GeoIndex;
+import com.example.userapi.search.NGramIndex;
+import com.example.userapi.search.SuggestIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
@@ -25,91 +55,533 @@ public class UserService {
     private UserRepository userRepository;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private NGramIndex nGramIndex;
 
-    private final WebClient webClient;
+    @Autowired
+    private SuggestIndex suggestIndex;
 
-    private static final String USERS_API_URL = "https://dummyjson.com/us";
+    @Autowired
+    private FuzzyIndex fuzzyIndex;
 
-    // Constructor for injecting WebClient.Builder to create the WebClient instance
-    public UserService(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.baseUrl(USERS_API_URL).build();
-    }
+    @Autowired
+    private AttributeIndex attributeIndex;
+
+    @Autowired
+    private GeoIndex geoIndex;
+
+    @Autowired
+    private UserLookupCache userLookupCache;
+
+    @Autowired
+    private UserWriteHook userWriteHook;
+
+    @Autowired
+    private WriteJobLock writeJobLock;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private UserChangeFeed userChangeFeed;
+
+    @Autowired
+    private UserSource userSource;
+
+    @Autowired
+    private ImportProgress importProgress;
+
+    @Autowired
+    private UserMetrics userMetrics;
+
+    // Number of users written to the database per batch during an import
+    @Value("${users.import.batch-size:500}")
+    private int importBatchSize;
+
+    // Interval of the comments sent on an idle change stream, so proxies do not close it
+    @Value("${users.changes.heartbeat:15s}")
+    private Duration changesHeartbeat;
+
+    // Maximum number of ids sent to the database in a single IN query
+    private static final int ID_FETCH_CHUNK_SIZE = 1000;
+
+    // Upper bound for the page size of keyset-paginated listings
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // Name of the last event of a change stream that cannot resume
+    private static final String RESYNC_EVENT = "resync";
+
+    // Upper bound for the number of fuzzy search results
+    private static final int MAX_FUZZY_RESULTS = 100;
+
+    // Upper bound for the number of updates or ids in one batch write request
+    private static final int MAX_BATCH_WRITE = 1000;
+
+    // Upper bound for the number of typeahead suggestions
+    private static final int MAX_SUGGESTIONS = 50;
+
+    // Upper bounds for the number of users returned by radius and nearest-neighbour queries
+    private static final int MAX_NEAR_RESULTS = 1000;
+    private static final int MAX_NEAREST_RESULTS = 100;
+
+    // Above this many index matches a paged search filters in SQL instead of binding every matching id
+    private static final int MAX_PAGED_SEARCH_IDS = 10_000;
 
     // Method to import users from an external JSON API and save them to the database
+    // Users are parsed as the response streams in and written in bounded batches; the next batch is only
+    // requested from the source once the previous one has been saved
     public Mono<String> saveUsersFromJson() {
         logger.info("Starting the process to import users from external API...");
-        return webClient.get()
-                .retrieve()
-                .bodyToMono(String.class)
-                .flatMap(json -> {
-                    try {
-                        // Parse the JSON response to a list of User objects
-                        List<User> users = objectMapper.readValue(
-                                objectMapper.readTree(json).get("users").toString(),
-                                new TypeReference<List<User>>() {}
-                        );
-                        // Save the users to the database and return a success message
-                        return userRepository.saveAll(Flux.fromIterable(users))
-                                .then(Mono.just("Users imported successfully!"));
-                    } catch (Exception e) {
+        return Mono.defer(() -> {
+            writeJobLock.acquire(WriteJobLock.Job.IMPORT);
+            importProgress.start();
+            return userSource.streamUsers()
+                    .buffer(importBatchSize)
+                    .concatMap(batch -> Mono.defer(() -> {
+                        long started = System.nanoTime();
+                        return userRepository.upsertAll(batch)
+                                .doOnSuccess(ignored -> {
+                                    userMetrics.recordImportBatch(batch.size(), System.nanoTime() - started);
+                                    userWriteHook.written(batch);
+                                })
+                                .thenReturn((long) batch.size());
+                    }))
+                    .doOnNext(saved -> {
+                        importProgress.recordBatch(saved);
+                        ImportProgress.ImportStatus status = importProgress.snapshot();
+                        logger.info("Imported {} users so far ({} rows/sec)", status.importedUsers(), status.rowsPerSecond());
+                    })
+                    .then(Mono.fromSupplier(() -> {
+                        ImportProgress.ImportStatus status = importProgress.snapshot();
+                        userMetrics.recordImport(status.elapsedMillis());
+                        return "Users imported successfully! (" + status.importedUsers() + " users in "
+                                + status.elapsedMillis() + " ms, " + status.rowsPerSecond() + " rows/sec)";
+                    }))
+                    .onErrorMap(e -> !(e instanceof ResponseStatusException), e -> {
                         // Log the error and return a failure message
                         logger.error("Error occurred while importing users: {}", e.getMessage());
-                        return Mono.error(new RuntimeException("Failed to import users: " + e.getMessage()));
-                    }
-                });
+                        return new RuntimeException("Failed to import users: " + e.getMessage(), e);
+                    })
+                    .doFinally(signal -> {
+                        importProgress.finish();
+                        writeJobLock.release(WriteJobLock.Job.IMPORT);
+                    });
+        });
+    }
+
+    // Method to report the progress of the running (or last) import
+    public ImportProgress.ImportStatus getImportStatus() {
+        return importProgress.snapshot();
     }
 
-    // Method to fetch all users from the database
+    // Method to fetch all users from the database, streamed with backpressure from the caller down to the cursor
     public Flux<User> findAllUsers() {
-        logger.info("Fetching all users from the database...");
-        return userRepository.findAll()
-                .doOnTerminate(() -> logger.info("Fetched all users from the database."));
+        logger.debug("Fetching all users from the database...");
+        return userRepository.streamAll()
+                .doOnTerminate(() -> logger.debug("Fetched all users from the database."));
     }
 
-    // Method to search users by first name, last name, or SSN
+    // Method to fetch all users, reading only the projected columns
+    public Flux<Map<String, Object>> findAllUsers(UserProjection projection) {
+        return userRepository.findProjected(Criteria.empty(), projection);
+    }
+
+    // Method to search users by first name, last name, or SSN; matching ids come from the n-gram index, and
+    // concurrent identical searches with a bounded result share one load through the search result cache
     public Flux<User> searchUsers(String query) {
-        logger.info("Searching for users with query: {}", query);
-        return userRepository.findByFirstNameContainingOrLastNameContainingOrSsnContaining(query, query, query)
+        logger.debug("Searching for users with query: {}", query);
+        return Mono.fromCallable(() -> nGramIndex.search(query))
+                .doOnNext(ids -> userMetrics.recordSearchResults(ids.length))
+                .flatMapMany(ids -> searchResultCache.get(query, ids.length, () -> findUsersByIds(ids)))
                 .switchIfEmpty(Flux.error(new UserNotFoundException("No users found matching query: " + query)))
-                .doOnTerminate(() -> logger.info("Search completed for query: {}", query));
+                .doOnTerminate(() -> logger.debug("Search completed for query: {}", query));
+    }
+
+    // Method to search users like searchUsers, reading only the projected columns; identical searches with the same
+    // fields share one load as well
+    public Flux<Map<String, Object>> searchUsers(String query, UserProjection projection) {
+        return Mono.fromCallable(() -> nGramIndex.search(query))
+                .doOnNext(ids -> userMetrics.recordSearchResults(ids.length))
+                .flatMapMany(ids -> searchResultCache.get(query, projection, ids.length, () -> findByIdChunks(ids,
+                        batch -> userRepository.findProjected(Criteria.where("id").in(batch), projection))))
+                .switchIfEmpty(Flux.error(new UserNotFoundException("No users found matching query: " + query)));
+    }
+
+    // Method to search users by name allowing up to maxEdits typos per word; results are ordered by score (fewest
+    // edits first) and capped at k
+    public Flux<User> searchUsersFuzzy(String query, int maxEdits, int k) {
+        if (maxEdits < 0 || maxEdits > FuzzyIndex.MAX_EDITS) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "fuzzy must be between 0 and " + FuzzyIndex.MAX_EDITS));
+        }
+        if (k < 1 || k > MAX_FUZZY_RESULTS) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "k must be between 1 and " + MAX_FUZZY_RESULTS));
+        }
+        logger.debug("Fuzzy searching users with query: {} (edits: {}, k: {})", query, maxEdits, k);
+        return Mono.fromCallable(() -> fuzzyIndex.search(query, maxEdits, k))
+                .doOnNext(ids -> userMetrics.recordSearchResults(ids.length))
+                .flatMapMany(this::findUsersInOrder)
+                .switchIfEmpty(Flux.error(new UserNotFoundException("No users found matching query: " + query)));
+    }
+
+    // Method to find up to limit users whose address lies within radiusKm of a point, nearest first by haversine
+    // distance; candidates come from the in-memory grid index
+    public Flux<User> findUsersNear(double lat, double lng, double radiusKm, int limit) {
+        if (!GeoIndex.isValid(lat, lng)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "lat must be between -90 and 90 and lng between -180 and 180"));
+        }
+        if (!(radiusKm > 0 && radiusKm <= GeoIndex.MAX_DISTANCE_KM)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "radiusKm must be greater than 0 and at most " + Math.round(GeoIndex.MAX_DISTANCE_KM)));
+        }
+        if (limit < 1 || limit > MAX_NEAR_RESULTS) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_NEAR_RESULTS));
+        }
+        logger.debug("Finding users within {} km of ({}, {})", radiusKm, lat, lng);
+        return Mono.fromCallable(() -> geoIndex.within(lat, lng, radiusKm, limit))
+                .flatMapMany(this::findUsersInOrder);
+    }
+
+    // Method to find the k users whose address is nearest to a point, nearest first by haversine distance
+    public Flux<User> findNearestUsers(double lat, double lng, int k) {
+        if (!GeoIndex.isValid(lat, lng)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "lat must be between -90 and 90 and lng between -180 and 180"));
+        }
+        if (k < 1 || k > MAX_NEAREST_RESULTS) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "k must be between 1 and " + MAX_NEAREST_RESULTS));
+        }
+        logger.debug("Finding the {} users nearest to ({}, {})", k, lat, lng);
+        return Mono.fromCallable(() -> geoIndex.nearest(lat, lng, k))
+                .flatMapMany(this::findUsersInOrder);
+    }
+
+    // Method to suggest users whose first name, last name, username or email starts with the prefix; answered from
+    // the in-memory prefix trie without touching the database
+    public Flux<SuggestIndex.Suggestion> suggestUsers(String prefix, int k) {
+        if (k < 1 || k > MAX_SUGGESTIONS) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "k must be between 1 and " + MAX_SUGGESTIONS));
+        }
+        return Flux.defer(() -> Flux.fromIterable(suggestIndex.suggest(prefix, k)));
+    }
+
+    // Method to fetch one keyset page of users, optionally filtered by role and sorted on an indexed column
+    public Mono<UserPage<User>> findUsersPage(String role, String sort, String after, int limit) {
+        logger.debug("Fetching users page (role: {}, sort: {}, limit: {})", role, sort, limit);
+        return readPage(roleFilter(role), sort, after, limit);
+    }
+
+    // Method to fetch one keyset page of users like findUsersPage, reading only the projected columns
+    public Mono<UserPage<Map<String, Object>>> findUsersPage(String role, String sort, String after, int limit,
+                                                             UserProjection projection) {
+        return readPage(roleFilter(role), sort, after, limit, projection);
+    }
+
+    // Method to fetch one keyset page of search results, optionally filtered by role and sorted on an indexed column
+    public Mono<UserPage<User>> searchUsersPage(String query, String role, String sort, String after, int limit) {
+        logger.debug("Searching users page with query: {} (role: {}, sort: {}, limit: {})", query, role, sort, limit);
+        return searchPage(query, role, filter -> readPage(filter, sort, after, limit));
+    }
+
+    // Method to fetch one keyset page of search results like searchUsersPage, reading only the projected columns
+    public Mono<UserPage<Map<String, Object>>> searchUsersPage(String query, String role, String sort, String after,
+                                                               int limit, UserProjection projection) {
+        return searchPage(query, role, filter -> readPage(filter, sort, after, limit, projection));
+    }
+
+    // Method to fetch one page of users matching a structured filter; the filter is resolved to sorted ids by the
+    // bitmap index and only the ids of the requested page are read from the database
+    public Mono<UserPage<User>> filterUsersPage(UserFilter filter, String after, int limit) {
+        logger.debug("Filtering users page with {} (limit: {})", filter, limit);
+        return filterPage(filter, after, limit, (page, pageLimit) ->
+                userRepository.findPage(idFilter(page), UserSort.ID, Sort.Direction.ASC, null, pageLimit),
+                UserCursor::after);
+    }
+
+    // Method to fetch one page of users matching a structured filter, reading only the projected columns
+    public Mono<UserPage<Map<String, Object>>> filterUsersPage(UserFilter filter, String after, int limit,
+                                                               UserProjection projection) {
+        return filterPage(filter, after, limit, (page, pageLimit) ->
+                userRepository.findPage(idFilter(page), UserSort.ID, Sort.Direction.ASC, null, projection, pageLimit),
+                UserCursor::after);
+    }
+
+    // Method to count users per role, gender, blood group, state, department and age bucket, optionally restricted
+    // to the matches of a search query and/or a structured filter; counted from the in-memory bitmaps, not the table
+    public Mono<Map<String, Map<String, Integer>>> getFacets(String query, UserFilter filter) {
+        logger.debug("Counting facets (query: {}, filter: {})", query, filter);
+        return Mono.fromCallable(() -> attributeIndex.facets(
+                query == null || query.isBlank() ? null : nGramIndex.search(query), filter));
     }
 
     // Method to find a user by their ID or email
     public Mono<User> findUserByIdOrEmail(Long id, String email) {
         if (id != null) {
-            logger.info("Looking for user with ID: {}", id);
-            return userRepository.findById(id)
+            logger.debug("Looking for user with ID: {}", id);
+            return userLookupCache.getById(id, userRepository::findById)
                     .switchIfEmpty(Mono.error(new UserNotFoundException("User not found with ID: " + id)))
-                    .doOnTerminate(() -> logger.info("User with ID: {} found.", id));
+                    .doOnTerminate(() -> logger.debug("User with ID: {} found.", id));
         } else if (email != null) {
-            logger.info("Looking for user with email: {}", email);
-            return userRepository.findByEmail(email)
+            logger.debug("Looking for user with email: {}", email);
+            return userLookupCache.getByEmail(email, userRepository::findByEmail, userRepository::findById)
                     .switchIfEmpty(Mono.error(new UserNotFoundException("User not found with email: " + email)))
-                    .doOnTerminate(() -> logger.info("User with email: {} found.", email));
+                    .doOnTerminate(() -> logger.debug("User with email: {} found.", email));
         }
         return Mono.error(new IllegalArgumentException("Either ID or email must be provided"));
     }
 
-    // Method to update an existing user's information
+    // Method to find a user by their ID or email, projected onto the requested fields
+    public Mono<Map<String, Object>> findUserByIdOrEmail(Long id, String email, UserProjection projection) {
+        return findUserByIdOrEmail(id, email).map(projection::apply);
+    }
+
+    // Method to update an existing user's information; a single UPDATE whose row count tells whether the user exists
     public Mono<User> updateUser(Long id, User updatedUser) {
-        logger.info("Updating user with ID: {}", id);
-        return userRepository.findById(id)
+        logger.debug("Updating user with ID: {}", id);
+        updatedUser.setId(id);
+        return userRepository.replace(updatedUser)
+                .flatMap(updated -> updated == 0
+                        ? Mono.<User>error(new UserNotFoundException("User not found with ID: " + id))
+                        : Mono.just(updatedUser))
+                .doOnNext(saved -> userWriteHook.written(List.of(saved)))
+                .doOnTerminate(() -> logger.debug("User with ID: {} updated successfully", id));
+    }
+
+    // Method to update only the fields present in the body, in a single UPDATE that also returns the stored user
+    public Mono<User> patchUser(Long id, Map<String, Object> changes) {
+        logger.debug("Patching user with ID: {}", id);
+        return Mono.fromCallable(() -> UserPatch.parse(id, changes))
+                .flatMap(patch -> userRepository.patchAll(List.of(patch)).next())
                 .switchIfEmpty(Mono.error(new UserNotFoundException("User not found with ID: " + id)))
-                .flatMap(existingUser -> {
-                    // Set the existing ID to the updated user object
-                    updatedUser.setId(existingUser.getId());
-                    return userRepository.save(updatedUser);
-                })
-                .doOnTerminate(() -> logger.info("User with ID: {} updated successfully", id));
+                .doOnNext(patched -> userWriteHook.written(List.of(patched)));
     }
 
-    // Method to delete a user by their ID
+    // Method to delete a user by their ID; a single DELETE whose row count tells whether the user existed
     public Mono<String> deleteUser(Long id) {
-        logger.info("Deleting user with ID: {}", id);
-        return userRepository.findById(id)
-                .switchIfEmpty(Mono.error(new UserNotFoundException("User not found with ID: " + id)))
-                .flatMap(user -> userRepository.delete(user).then(Mono.just("User deleted successfully")))
-                .doOnTerminate(() -> logger.info("User with ID: {} deleted successfully", id));
+        logger.debug("Deleting user with ID: {}", id);
+        return userRepository.deleteByIds(List.of(id))
+                .doOnNext(userWriteHook::deleted)
+                .hasElements()
+                .flatMap(deleted -> deleted
+                        ? Mono.just("User deleted successfully")
+                        : Mono.error(new UserNotFoundException("User not found with ID: " + id)))
+                .doOnTerminate(() -> logger.debug("User with ID: {} deleted successfully", id));
+    }
+
+    // Method to apply many partial updates, each an object with the id and the fields to change; patches of the same
+    // fields share one batched UPDATE per chunk
+    public Mono<BatchWriteResult> batchUpdateUsers(List<Map<String, Object>> changes) {
+        if (changes == null || changes.isEmpty() || changes.size() > MAX_BATCH_WRITE) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch must hold between 1 and " + MAX_BATCH_WRITE + " updates"));
+        }
+        logger.debug("Batch updating {} users", changes.size());
+        return Mono.fromCallable(() -> changes.stream().map(UserPatch::parse).toList())
+                .flatMap(patches -> userRepository.patchAll(patches)
+                        .collectList()
+                        .map(updated -> {
+                            userWriteHook.written(updated);
+                            Set<Long> updatedIds = new HashSet<>();
+                            updated.forEach(user -> updatedIds.add(user.getId()));
+                            List<Long> notFound = patches.stream().map(UserPatch::id)
+                                    .filter(patchId -> !updatedIds.contains(patchId)).distinct().toList();
+                            return new BatchWriteResult(updated.size(), notFound);
+                        }));
+    }
+
+    // Method to delete many users by id in batched DELETE statements
+    public Mono<BatchWriteResult> batchDeleteUsers(List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_WRITE || ids.contains(null)) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch must hold between 1 and " + MAX_BATCH_WRITE + " ids"));
+        }
+        logger.debug("Batch deleting {} users", ids.size());
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        return userRepository.deleteByIds(distinctIds)
+                .doOnNext(userWriteHook::deleted)
+                .collect(Collectors.toSet())
+                .map(deleted -> new BatchWriteResult(deleted.size(),
+                        distinctIds.stream().filter(id -> !deleted.contains(id)).toList()));
+    }
+
+    // Method to stream the change feed as server-sent events after sequence number since (from the latest change when
+    // absent): an upsert or delete event per change with the sequence number as event id. A consumer that cannot
+    // resume from since gets a final resync event with the available range and has to reload the users
+    public Flux<ServerSentEvent<Object>> streamChanges(Long since) {
+        if (since != null && since < 0) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "since must not be negative"));
+        }
+        return Flux.defer(() -> {
+            Flux<ServerSentEvent<Object>> changes = userChangeFeed
+                    .changesSince(since != null ? since : userChangeFeed.latestSeq())
+                    .map(change -> ServerSentEvent.<Object>builder(change)
+                            .id(Long.toString(change.getSeq()))
+                            .event(change.getType().name().toLowerCase(Locale.ROOT))
+                            .build())
+                    .onErrorResume(UserChangeFeed.ResyncRequiredException.class, e -> {
+                        logger.debug("Change stream needs a resync: {}", e.getMessage());
+                        return Mono.just(ServerSentEvent.<Object>builder(e.resync()).event(RESYNC_EVENT).build());
+                    });
+            Flux<ServerSentEvent<Object>> heartbeats = Flux.interval(changesHeartbeat)
+                    .onBackpressureDrop()
+                    .map(tick -> ServerSentEvent.<Object>builder().comment("heartbeat").build());
+            return Flux.merge(changes, heartbeats)
+                    .takeUntil(event -> RESYNC_EVENT.equals(event.event()));
+        });
+    }
+
+    // Method to report hit/miss/eviction statistics of the single-user lookup cache
+    public UserLookupCache.Stats getLookupCacheStats() {
+        return userLookupCache.stats();
+    }
+
+    // Fetches users by id in bounded chunks so a large match set never becomes a single huge IN query
+    private Flux<User> findUsersByIds(long[] ids) {
+        return findByIdChunks(ids, userRepository::findAllById);
+    }
+
+    // Fetches users by id, emitting them in the order of the ids; findAllById does not keep that order
+    private Flux<User> findUsersInOrder(long[] ids) {
+        Map<Long, Integer> rank = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            rank.put(ids[i], i);
+        }
+        return findUsersByIds(ids)
+                .collectSortedList(Comparator.comparing(user -> rank.get(user.getId())))
+                .flatMapIterable(users -> users);
+    }
+
+    private static <T> Flux<T> findByIdChunks(long[] ids, Function<List<Long>, Flux<T>> fetch) {
+        return Flux.range(0, (ids.length + ID_FETCH_CHUNK_SIZE - 1) / ID_FETCH_CHUNK_SIZE)
+                .concatMap(chunk -> {
+                    int from = chunk * ID_FETCH_CHUNK_SIZE;
+                    int to = Math.min(ids.length, from + ID_FETCH_CHUNK_SIZE);
+                    List<Long> batch = new ArrayList<>(to - from);
+                    for (int i = from; i < to; i++) {
+                        batch.add(ids[i]);
+                    }
+                    return fetch.apply(batch);
+                });
+    }
+
+    // Resolves the index matches of a query into the filter of a paged search
+    private <T> Mono<UserPage<T>> searchPage(String query, String role, Function<Criteria, Mono<UserPage<T>>> page) {
+        return Mono.fromCallable(() -> nGramIndex.search(query))
+                .doOnNext(ids -> userMetrics.recordPagedSearchMatches(ids.length))
+                .flatMap(ids -> {
+                    if (ids.length == 0) {
+                        return Mono.error(new UserNotFoundException("No users found matching query: " + query));
+                    }
+                    Criteria filter = searchFilter(query, ids);
+                    if (role != null && !role.isBlank()) {
+                        filter = Criteria.from(List.of(filter, roleFilter(role)));
+                    }
+                    return page.apply(filter);
+                });
+    }
+
+    // Pages through the filter matches in id order: the cursor's id is located in the sorted match array and the next
+    // limit + 1 ids are fetched, so every page costs one bounded IN query whatever the total match count
+    private <T> Mono<UserPage<T>> filterPage(UserFilter filter, String after, int limit,
+                                             BiFunction<List<Long>, Integer, Flux<T>> fetch,
+                                             CursorFactory<T> cursors) {
+        return Mono.fromCallable(() -> attributeIndex.filter(filter))
+                .doOnNext(ids -> userMetrics.recordPagedSearchMatches(ids.length))
+                .flatMap(ids -> readPage(null, after, limit, (sort, direction, cursor) -> {
+                    int from = 0;
+                    if (cursor != null) {
+                        int position = Arrays.binarySearch(ids, cursor.id());
+                        from = position >= 0 ? position + 1 : -position - 1;
+                    }
+                    int to = Math.min(ids.length, from + limit + 1);
+                    List<Long> page = new ArrayList<>(to - from);
+                    for (int i = from; i < to; i++) {
+                        page.add(ids[i]);
+                    }
+                    return page.isEmpty() ? Flux.empty() : fetch.apply(page, limit + 1);
+                }, cursors));
+    }
+
+    private Mono<UserPage<User>> readPage(Criteria filter, String sortParam, String after, int limit) {
+        return readPage(sortParam, after, limit,
+                (sort, direction, cursor) -> userRepository.findPage(filter, sort, direction, cursor, limit + 1),
+                UserCursor::after);
+    }
+
+    // The sort key is always selected, even when not requested, because the next cursor is built from it
+    private Mono<UserPage<Map<String, Object>>> readPage(Criteria filter, String sortParam, String after, int limit,
+                                                         UserProjection projection) {
+        return readPage(sortParam, after, limit,
+                (sort, direction, cursor) -> userRepository.findPage(filter, sort, direction, cursor,
+                        projection.with(sort.getProperty()), limit + 1),
+                UserCursor::after);
+    }
+
+    // Reads limit + 1 rows so the presence of a further page is known without a count query
+    private <T> Mono<UserPage<T>> readPage(String sortParam, String after, int limit,
+                                           PageFetcher<T> fetcher, CursorFactory<T> cursors) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        UserSort sort = UserSort.ID;
+        Sort.Direction direction = Sort.Direction.ASC;
+        if (sortParam != null && !sortParam.isBlank()) {
+            String[] parts = sortParam.split(",", 2);
+            sort = UserSort.fromProperty(parts[0].trim());
+            if (parts.length > 1) {
+                direction = Sort.Direction.fromOptionalString(parts[1].trim())
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                "Unsupported sort direction: " + parts[1]));
+            }
+        }
+        UserSort pageSort = sort;
+        Sort.Direction pageDirection = direction;
+        UserCursor cursor = after == null || after.isBlank() ? null : UserCursor.decode(after, sort, direction);
+        return fetcher.fetch(sort, direction, cursor)
+                .collectList()
+                .map(rows -> {
+                    if (rows.size() <= limit) {
+                        return new UserPage<>(rows, null);
+                    }
+                    List<T> items = rows.subList(0, limit);
+                    String next = cursors.after(items.get(limit - 1), pageSort, pageDirection).encode();
+                    return new UserPage<>(new ArrayList<>(items), next);
+                });
+    }
+
+    private interface PageFetcher<T> {
+        Flux<T> fetch(UserSort sort, Sort.Direction direction, UserCursor after);
+    }
+
+    private interface CursorFactory<T> {
+        UserCursor after(T row, UserSort sort, Sort.Direction direction);
+    }
+
+    private static Criteria idFilter(List<Long> ids) {
+        return Criteria.where("id").in(ids);
+    }
+
+    private static Criteria roleFilter(String role) {
+        return role == null || role.isBlank() ? Criteria.empty() : Criteria.where("role").is(role);
+    }
+
+    // Restricts a page to the index matches, falling back to case-insensitive LIKE predicates for very broad queries
+    private static Criteria searchFilter(String query, long[] ids) {
+        if (ids.length <= MAX_PAGED_SEARCH_IDS) {
+            List<Long> idList = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                idList.add(id);
+            }
+            return Criteria.where("id").in(idList);
+        }
+        String pattern = "%" + query.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return Criteria.where("firstName").like(pattern).ignoreCase(true)
+                .or(Criteria.where("lastName").like(pattern).ignoreCase(true))
+                .or(Criteria.where("ssn").like(pattern).ignoreCase(true));
     }
 }
@@ -0,0 +1,197 @@
+package com.example.userapi.service;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.repository.UserSyncStore;
+import com.example.userapi.snapshot.UserSnapshotReader;
+import com.example.userapi.snapshot.UserSnapshotWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Periodically writes the users table, with the sync content hashes, to a binary snapshot file
+// (users.snapshot.path), and restores an empty database from it on startup. The restore runs before the
+// application reports ready, so the indexes are built from the restored rows; a sync then replays what changed
+// at the source since the snapshot.
+@Service
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class UserSnapshotService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSnapshotService.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSyncStore syncStore;
+
+    @Autowired
+    private UserSyncService userSyncService;
+
+    // Snapshot file; snapshots are disabled when it is empty
+    @Value("${users.snapshot.path:}")
+    private String snapshotPath;
+
+    @Value("${users.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${users.sync.enabled:false}")
+    private boolean syncEnabled;
+
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private volatile long restoredUsers;
+
+    // Where and when a snapshot was written, how many users it holds and its size in bytes
+    public record SnapshotInfo(String path, long users, long bytes, long elapsedMillis) {
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (snapshotPath.isEmpty()) {
+            return;
+        }
+        try {
+            restoredUsers = restore().block();
+        } catch (RuntimeException e) {
+            // A missing or unreadable snapshot only costs the warm start: the application comes up empty
+            logger.warn("Could not restore users from snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    // Replays the changes made at the source since the snapshot was written
+    @EventListener(ApplicationReadyEvent.class)
+    public void syncAfterRestore() {
+        if (restoredUsers > 0 && syncEnabled) {
+            userSyncService.sync().subscribe(
+                    result -> logger.info("Synced users changed since the snapshot: {}", result),
+                    error -> logger.warn("Could not sync users after restoring the snapshot: {}", error.getMessage()));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${users.snapshot.interval:PT15M}",
+            fixedDelayString = "${users.snapshot.interval:PT15M}")
+    public void scheduledSnapshot() {
+        if (snapshotPath.isEmpty()) {
+            return;
+        }
+        try {
+            SnapshotInfo info = writeSnapshot().block();
+            logger.info("Wrote users snapshot: {}", info);
+        } catch (RuntimeException e) {
+            logger.warn("Could not write users snapshot: {}", e.getMessage());
+        }
+    }
+
+    // Method to write a snapshot of every user now, replacing the previous one once it is complete
+    public Mono<SnapshotInfo> writeSnapshot() {
+        return Mono.defer(() -> {
+            if (snapshotPath.isEmpty()) {
+                return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Snapshots are disabled (users.snapshot.path is not set)"));
+            }
+            if (!writing.compareAndSet(false, true)) {
+                return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "A snapshot is already being written"));
+            }
+            long started = System.nanoTime();
+            Path path = Path.of(snapshotPath);
+            return syncStore.checkpoint()
+                    .map(checkpoint -> checkpoint.completed() ? checkpoint.runId() : checkpoint.runId() - 1)
+                    .defaultIfEmpty(0L)
+                    .flatMap(syncRunId -> Mono.using(
+                            () -> UserSnapshotWriter.create(path, syncRunId),
+                            writer -> userRepository.findAll()
+                                    .buffer(batchSize)
+                                    .concatMap(users -> syncStore.hashes(users.stream().map(User::getId).toList())
+                                            .publishOn(Schedulers.boundedElastic())
+                                            .doOnNext(hashes -> write(writer, users, hashes)))
+                                    .then(Mono.fromCallable(() -> new SnapshotInfo(path.toString(), writer.count(),
+                                            writer.commit(), (System.nanoTime() - started) / 1_000_000))
+                                            .subscribeOn(Schedulers.boundedElastic())),
+                            this::closeQuietly))
+                    .doFinally(signal -> writing.set(false));
+        });
+    }
+
+    // Method to load the snapshot into an empty users table, emitting the number of restored users; a database
+    // that already holds users (e.g. a file-backed one) is left alone
+    public Mono<Long> restore() {
+        Path path = Path.of(snapshotPath);
+        if (snapshotPath.isEmpty() || !Files.exists(path)) {
+            return Mono.just(0L);
+        }
+        return userRepository.count().flatMap(existing -> {
+            if (existing > 0) {
+                logger.info("Skipping snapshot restore: the database already holds {} users", existing);
+                return Mono.just(0L);
+            }
+            long started = System.nanoTime();
+            return Mono.using(
+                    () -> UserSnapshotReader.open(path),
+                    reader -> Flux.fromIterable(reader)
+                            .buffer(batchSize)
+                            .concatMap(entries -> restoreBatch(entries, reader.syncRunId()))
+                            .reduce(0L, Long::sum)
+                            .flatMap(restored -> (reader.syncRunId() > 0
+                                    ? syncStore.saveCheckpoint(new UserSyncStore.Checkpoint(reader.syncRunId(), 0, true))
+                                    : Mono.<Void>empty())
+                                    .thenReturn(restored))
+                            .doOnSuccess(restored -> logger.info("Restored {} users from snapshot {} in {} ms",
+                                    restored, path, (System.nanoTime() - started) / 1_000_000)),
+                    this::closeQuietly);
+        });
+    }
+
+    private Mono<Long> restoreBatch(List<UserSnapshotReader.Entry> entries, long syncRunId) {
+        List<User> users = entries.stream().map(UserSnapshotReader.Entry::user).toList();
+        Map<Long, Long> hashes = new HashMap<>();
+        for (UserSnapshotReader.Entry entry : entries) {
+            if (entry.contentHash() != null) {
+                hashes.put(entry.user().getId(), entry.contentHash());
+            }
+        }
+        return userRepository.upsertAll(users)
+                .then(syncStore.markSeen(hashes, syncRunId))
+                .thenReturn((long) users.size());
+    }
+
+    private static void write(UserSnapshotWriter writer, List<User> users, Map<Long, Long> hashes) {
+        try {
+            for (User user : users) {
+                writer.write(user, hashes.get(user.getId()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            logger.warn("Could not close snapshot file: {}", e.getMessage());
+        }
+    }
+}
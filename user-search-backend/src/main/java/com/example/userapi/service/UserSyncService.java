@@ -0,0 +1,179 @@
+package com.example.userapi.service;
+
+import com.example.userapi.importer.UserSource;
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserColumns;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.repository.UserSyncStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Incremental sync from the external user source. Every user gets a content hash; a run only writes users whose
+// hash is new or changed, marks every user it sees with its run id and, once it has read the whole source, deletes
+// the source users it did not see (tombstones). The position after the last fully processed page is checkpointed,
+// so an interrupted run resumes there instead of starting over.
+@Service
+public class UserSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSyncService.class);
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    @Autowired
+    private UserSource userSource;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSyncStore syncStore;
+
+    @Autowired
+    private UserWriteHook userWriteHook;
+
+    @Autowired
+    private WriteJobLock writeJobLock;
+
+    // Runs the sync on a schedule (users.sync.interval) when enabled
+    @Value("${users.sync.enabled:false}")
+    private boolean scheduled;
+
+    // Number of source pages diffed and written at the same time
+    @Value("${users.sync.concurrency:4}")
+    private int concurrency;
+
+    // Counts of one sync run; resumedFromSkip is the source offset an interrupted run was resumed from (0 otherwise)
+    public record SyncResult(long runId, int resumedFromSkip, long inserted, long updated, long unchanged,
+                             long deleted, long elapsedMillis) {
+    }
+
+    @Scheduled(initialDelayString = "${users.sync.interval:PT1H}", fixedDelayString = "${users.sync.interval:PT1H}")
+    public void scheduledSync() {
+        if (!scheduled) {
+            return;
+        }
+        try {
+            SyncResult result = sync().block();
+            logger.info("Scheduled user sync finished: {}", result);
+        } catch (RuntimeException e) {
+            logger.warn("Scheduled user sync failed: {}", e.getMessage());
+        }
+    }
+
+    // Method to run (or resume) one incremental sync; it cannot overlap with an import or another sync
+    public Mono<SyncResult> sync() {
+        return Mono.defer(() -> {
+            writeJobLock.acquire(WriteJobLock.Job.SYNC);
+            long started = System.nanoTime();
+            Counters counters = new Counters();
+            return syncStore.checkpoint()
+                    .map(last -> last.completed() ? new UserSyncStore.Checkpoint(last.runId() + 1, 0, false) : last)
+                    .defaultIfEmpty(new UserSyncStore.Checkpoint(1, 0, false))
+                    .flatMap(run -> syncStore.saveCheckpoint(run).thenReturn(run))
+                    .flatMap(run -> {
+                        logger.info("Starting user sync run {} at offset {}", run.runId(), run.nextSkip());
+                        return userSource.streamPages(run.nextSkip())
+                                .flatMapSequential(page -> syncPage(page, run.runId(), counters), concurrency)
+                                // Pages come out in source order, so the checkpoint only moves past finished pages
+                                .concatMap(page -> syncStore.saveCheckpoint(
+                                        new UserSyncStore.Checkpoint(run.runId(), page.nextSkip(), false)))
+                                .then(Mono.defer(() -> tombstone(run, counters)))
+                                .then(syncStore.saveCheckpoint(new UserSyncStore.Checkpoint(run.runId(), 0, true)))
+                                .then(Mono.fromSupplier(() -> new SyncResult(run.runId(), run.nextSkip(),
+                                        counters.inserted.get(), counters.updated.get(), counters.unchanged.get(),
+                                        counters.deleted.get(), (System.nanoTime() - started) / 1_000_000)));
+                    })
+                    .doOnError(e -> logger.warn("User sync interrupted, it will resume from its checkpoint: {}",
+                            e.getMessage()))
+                    // Released before the outcome is signalled, so a caller can start the next run right away
+                    .doOnTerminate(() -> writeJobLock.release(WriteJobLock.Job.SYNC))
+                    .doOnCancel(() -> writeJobLock.release(WriteJobLock.Job.SYNC));
+        });
+    }
+
+    // Writes the new and changed users of a page and records every user of the page as seen by the run
+    private Mono<UserSource.Page> syncPage(UserSource.Page page, long runId, Counters counters) {
+        Map<Long, Long> hashes = new HashMap<>();
+        for (User user : page.users()) {
+            if (user.getId() != null) {
+                hashes.put(user.getId(), contentHash(user));
+            }
+        }
+        return syncStore.hashes(new ArrayList<>(hashes.keySet()))
+                .flatMap(stored -> {
+                    List<User> changed = new ArrayList<>();
+                    for (User user : page.users()) {
+                        Long previous = user.getId() == null ? null : stored.get(user.getId());
+                        if (user.getId() == null) {
+                            continue;
+                        } else if (previous == null) {
+                            counters.inserted.incrementAndGet();
+                            changed.add(user);
+                        } else if (previous.longValue() != hashes.get(user.getId())) {
+                            counters.updated.incrementAndGet();
+                            changed.add(user);
+                        } else {
+                            counters.unchanged.incrementAndGet();
+                        }
+                    }
+                    Mono<Long> write = changed.isEmpty() ? Mono.just(0L) : userRepository.upsertAll(changed);
+                    return write
+                            .then(syncStore.markSeen(hashes, runId))
+                            .then(Mono.fromRunnable(() -> userWriteHook.written(changed)))
+                            .thenReturn(page);
+                });
+    }
+
+    // Deletes the source users the run did not see. A resumed run skips this: the source may have shifted between
+    // attempts, so users of its earlier pages could be missing from the run without having been removed; the next
+    // complete run applies the deletions instead.
+    private Mono<Void> tombstone(UserSyncStore.Checkpoint run, Counters counters) {
+        if (run.nextSkip() > 0) {
+            return Mono.empty();
+        }
+        return syncStore.unseenIds(run.runId())
+                .collectList()
+                .flatMapMany(userRepository::deleteByIds)
+                .doOnNext(id -> {
+                    counters.deleted.incrementAndGet();
+                    userWriteHook.deleted(id);
+                })
+                .then(syncStore.forgetUnseen(run.runId()))
+                .then();
+    }
+
+    // 64-bit FNV-1a over every column value, so any change to a stored field changes the hash
+    static long contentHash(User user) {
+        long hash = FNV_OFFSET_BASIS;
+        for (UserColumns.Column column : UserColumns.ALL) {
+            Object value = column.getter().apply(user);
+            byte[] bytes = value == null ? new byte[]{0} : value.toString().getBytes(StandardCharsets.UTF_8);
+            for (byte b : bytes) {
+                hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+            }
+            // Field separator, so that moving characters between adjacent fields changes the hash
+            hash = (hash ^ 0x1f) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static final class Counters {
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong unchanged = new AtomicLong();
+        private final AtomicLong deleted = new AtomicLong();
+    }
+}
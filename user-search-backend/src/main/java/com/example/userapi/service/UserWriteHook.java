@@ -0,0 +1,50 @@
+package com.example.userapi.service;
+
+import com.example.userapi.model.User;
+import com.example.userapi.search.UserIndexer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+// Side effects of every committed user write, whichever path made it (API writes, imports, syncs): shared search
+// results are dropped, the in-memory indexes and the lookup cache are brought in line and the change is published
+// to the change feed
+@Component
+public class UserWriteHook {
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private UserIndexer userIndexer;
+
+    @Autowired
+    private UserLookupCache userLookupCache;
+
+    @Autowired
+    private UserChangeFeed userChangeFeed;
+
+    // Method to apply users that were just inserted or updated
+    public void written(Collection<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        searchResultCache.invalidateAll();
+        for (User user : users) {
+            userIndexer.index(user);
+            userLookupCache.invalidate(user.getId());
+            userLookupCache.invalidateEmail(user.getEmail());
+        }
+        userChangeFeed.upserted(users);
+    }
+
+    // Method to apply a user that was just deleted; cached email keys of the user are dropped with it or fail
+    // validation on their next use
+    public void deleted(long id) {
+        searchResultCache.invalidateAll();
+        userIndexer.remove(id);
+        userLookupCache.invalidate(id);
+        userChangeFeed.deleted(id);
+    }
+}
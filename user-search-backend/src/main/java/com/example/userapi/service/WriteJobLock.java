@@ -0,0 +1,36 @@
+package com.example.userapi.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Lets one bulk write job (an import or a sync) run at a time, as both rewrite the same users from the source
+@Component
+public class WriteJobLock {
+
+    public enum Job {
+        IMPORT("An import"), SYNC("A sync");
+
+        private final String description;
+
+        Job(String description) {
+            this.description = description;
+        }
+    }
+
+    private final AtomicReference<Job> running = new AtomicReference<>();
+
+    // Takes the lock for the job, or fails with 409 naming the job that holds it
+    public void acquire(Job job) {
+        Job holder = running.compareAndExchange(null, job);
+        if (holder != null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, holder.description + " is already running");
+        }
+    }
+
+    public void release(Job job) {
+        running.compareAndSet(job, null);
+    }
+}
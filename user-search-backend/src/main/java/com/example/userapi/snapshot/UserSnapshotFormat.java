@@ -0,0 +1,46 @@
+package com.example.userapi.snapshot;
+
+import com.example.userapi.repository.UserColumns;
+
+import java.nio.charset.StandardCharsets;
+
+// Layout of a users snapshot file (all numbers big-endian):
+//
+//   header  magic "USNP" | format version (int) | schema fingerprint (long) | created at, epoch millis (long)
+//           | last completed sync run (long) | user count (int) | reserved (int) | CRC32C of the body (long)
+//   body    one record per user: record length (int) | presence bits (long) | [content hash (long)]
+//           | the non-null columns of UserColumns.ALL in table order
+//
+// Bit i of the presence bits is set when column i is not null; bit 63 when the record carries the sync content
+// hash of the user. Long and Double columns take 8 bytes, Integer columns 4, and String columns a varint byte
+// length followed by UTF-8. The fingerprint covers the names and types of the columns, so a snapshot written
+// by a build with a different users table is rejected instead of misread. A snapshot is read through a single
+// mapping, so a file is at most MAX_SIZE bytes; the writer fails rather than commit a larger one.
+final class UserSnapshotFormat {
+
+    static final int MAGIC = 0x55534E50;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 48;
+    static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    static final long HASH_PRESENT = 1L << 63;
+
+    static final long SCHEMA_FINGERPRINT = fingerprint();
+
+    private UserSnapshotFormat() {
+    }
+
+    private static long fingerprint() {
+        if (UserColumns.ALL.size() > 63) {
+            throw new IllegalStateException("Snapshot presence bits cover at most 63 columns");
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (UserColumns.Column column : UserColumns.ALL) {
+            String key = column.name() + ':' + column.type().getSimpleName() + ';';
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.userapi.snapshot;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserColumns;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+
+// Reads a snapshot (see UserSnapshotFormat) through a read-only memory mapping. The header and the body checksum
+// are verified on open; users are then decoded one record at a time straight from the mapped pages.
+public class UserSnapshotReader implements Closeable, Iterable<UserSnapshotReader.Entry> {
+
+    // A user of the snapshot and its sync content hash, if it had one
+    public record Entry(User user, Long contentHash) {
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long createdAt;
+    private final long syncRunId;
+    private final int count;
+
+    private UserSnapshotReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        if (size < UserSnapshotFormat.HEADER_SIZE) {
+            throw new IOException("Invalid snapshot size " + size);
+        }
+        if (size > UserSnapshotFormat.MAX_SIZE) {
+            throw new IOException("Snapshot of " + size + " bytes exceeds the " + UserSnapshotFormat.MAX_SIZE
+                    + " bytes that can be mapped");
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (buffer.getInt() != UserSnapshotFormat.MAGIC) {
+            throw new IOException("Not a users snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != UserSnapshotFormat.VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        if (buffer.getLong() != UserSnapshotFormat.SCHEMA_FINGERPRINT) {
+            throw new IOException("Snapshot was written for a different users table");
+        }
+        this.createdAt = buffer.getLong();
+        this.syncRunId = buffer.getLong();
+        this.count = buffer.getInt();
+        buffer.getInt();
+        long expectedChecksum = buffer.getLong();
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.duplicate());
+        if (checksum.getValue() != expectedChecksum) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+    }
+
+    public static UserSnapshotReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new UserSnapshotReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long createdAt() {
+        return createdAt;
+    }
+
+    public long syncRunId() {
+        return syncRunId;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    // Iterates over the users from the first record; every call starts over
+    @Override
+    public Iterator<Entry> iterator() {
+        ByteBuffer records = buffer.duplicate().position(UserSnapshotFormat.HEADER_SIZE);
+        return new Iterator<>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return read < count;
+            }
+
+            @Override
+            public Entry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                read++;
+                return decode(records);
+            }
+        };
+    }
+
+    // The mapping is released by the garbage collector; closing only closes the channel
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static Entry decode(ByteBuffer records) {
+        int length = records.getInt();
+        int end = records.position() + length;
+        long presence = records.getLong();
+        Long contentHash = (presence & UserSnapshotFormat.HASH_PRESENT) != 0 ? records.getLong() : null;
+        User user = new User();
+        for (int i = 0; i < UserColumns.ALL.size(); i++) {
+            if ((presence & (1L << i)) == 0) {
+                continue;
+            }
+            UserColumns.Column column = UserColumns.ALL.get(i);
+            Object value;
+            if (column.type() == String.class) {
+                byte[] bytes = new byte[getVarInt(records)];
+                records.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            } else if (column.type() == Long.class) {
+                value = records.getLong();
+            } else if (column.type() == Integer.class) {
+                value = records.getInt();
+            } else {
+                value = records.getDouble();
+            }
+            column.setter().accept(user, value);
+        }
+        if (records.position() != end) {
+            throw new IllegalStateException("Corrupt snapshot record for user " + user.getId());
+        }
+        return new Entry(user, contentHash);
+    }
+
+    private static int getVarInt(ByteBuffer records) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = records.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.userapi.snapshot;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserColumns;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+// Writes a snapshot (see UserSnapshotFormat) to a temporary file next to the target and moves it into place on
+// commit, so readers only ever see complete snapshots
+public class UserSnapshotWriter implements Closeable {
+
+    private final Path target;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final OutputStream out;
+    private final long syncRunId;
+    private final long maxSize;
+    private final CRC32C checksum = new CRC32C();
+
+    private ByteBuffer record = ByteBuffer.allocate(4096);
+    private long size = UserSnapshotFormat.HEADER_SIZE;
+    private int count;
+    private boolean committed;
+
+    private UserSnapshotWriter(Path target, long syncRunId, long maxSize) throws IOException {
+        this.target = target;
+        this.temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        this.syncRunId = syncRunId;
+        this.maxSize = Math.min(maxSize, UserSnapshotFormat.MAX_SIZE);
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        channel.position(UserSnapshotFormat.HEADER_SIZE);
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+    }
+
+    // syncRunId is the last completed sync run, restored with the content hashes so that the next sync only
+    // writes what changed since the snapshot
+    public static UserSnapshotWriter create(Path target, long syncRunId) throws IOException {
+        return new UserSnapshotWriter(target, syncRunId, UserSnapshotFormat.MAX_SIZE);
+    }
+
+    // Like create, with the file limited to maxSize bytes (never more than a reader can map)
+    public static UserSnapshotWriter create(Path target, long syncRunId, long maxSize) throws IOException {
+        return new UserSnapshotWriter(target, syncRunId, maxSize);
+    }
+
+    // Fails once the file would grow past the size a reader accepts; the snapshot is then discarded on close and
+    // the previous one, if any, stays in place
+    public void write(User user, Long contentHash) throws IOException {
+        record.clear();
+        record.putInt(0);
+        long presence = contentHash == null ? 0 : UserSnapshotFormat.HASH_PRESENT;
+        for (int i = 0; i < UserColumns.ALL.size(); i++) {
+            if (UserColumns.ALL.get(i).getter().apply(user) != null) {
+                presence |= 1L << i;
+            }
+        }
+        record.putLong(presence);
+        if (contentHash != null) {
+            record.putLong(contentHash);
+        }
+        for (UserColumns.Column column : UserColumns.ALL) {
+            Object value = column.getter().apply(user);
+            if (value instanceof String text) {
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                ensureCapacity(bytes.length + 5);
+                putVarInt(bytes.length);
+                record.put(bytes);
+            } else if (value != null) {
+                ensureCapacity(8);
+                if (value instanceof Long number) {
+                    record.putLong(number);
+                } else if (value instanceof Integer number) {
+                    record.putInt(number);
+                } else if (value instanceof Double number) {
+                    record.putDouble(number);
+                } else {
+                    throw new IllegalArgumentException("Unsupported column type " + column.type());
+                }
+            }
+        }
+        record.putInt(0, record.position() - Integer.BYTES);
+        if (size + record.position() > maxSize) {
+            throw new IOException("Snapshot would exceed " + maxSize + " bytes after " + count
+                    + " users; a larger one cannot be read back");
+        }
+        size += record.position();
+        out.write(record.array(), 0, record.position());
+        checksum.update(record.array(), 0, record.position());
+        count++;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    // Completes the header, syncs the file to disk and atomically replaces the target; returns the file size
+    public long commit() throws IOException {
+        out.flush();
+        ByteBuffer header = ByteBuffer.allocate(UserSnapshotFormat.HEADER_SIZE);
+        header.putInt(UserSnapshotFormat.MAGIC)
+                .putInt(UserSnapshotFormat.VERSION)
+                .putLong(UserSnapshotFormat.SCHEMA_FINGERPRINT)
+                .putLong(System.currentTimeMillis())
+                .putLong(syncRunId)
+                .putInt(count)
+                .putInt(0)
+                .putLong(checksum.getValue())
+                .flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        long size = channel.size();
+        channel.force(true);
+        channel.close();
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+        return size;
+    }
+
+    // Discards the temporary file unless the snapshot was committed
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.close();
+        }
+        if (!committed) {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void putVarInt(int value) {
+        while ((value & ~0x7f) != 0) {
+            record.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        record.put((byte) value);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            record.flip();
+            larger.put(record);
+            record = larger;
+        }
+    }
+}
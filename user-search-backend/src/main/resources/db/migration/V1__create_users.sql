@@ -0,0 +1,42 @@
+-- Users table; column names follow the @Column mappings of User and its embedded Hair, Address, Coordinates,
+-- Bank and Company objects
+CREATE TABLE IF NOT EXISTS users (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name   VARCHAR(255),
+    last_name    VARCHAR(255),
+    maiden_name  VARCHAR(255),
+    age          INT,
+    gender       VARCHAR(32),
+    email        VARCHAR(255),
+    phone        VARCHAR(64),
+    username     VARCHAR(255),
+    password     VARCHAR(255),
+    birth_date   VARCHAR(32),
+    image        VARCHAR(512),
+    blood_group  VARCHAR(8),
+    height       DOUBLE PRECISION,
+    weight       DOUBLE PRECISION,
+    eye_color    VARCHAR(32),
+    color        VARCHAR(64),
+    type         VARCHAR(64),
+    address      VARCHAR(255),
+    city         VARCHAR(128),
+    state        VARCHAR(128),
+    state_code   VARCHAR(16),
+    postal_code  VARCHAR(32),
+    lat          DOUBLE PRECISION,
+    lng          DOUBLE PRECISION,
+    country      VARCHAR(128),
+    card_expire  VARCHAR(16),
+    card_number  VARCHAR(64),
+    card_type    VARCHAR(64),
+    currency     VARCHAR(16),
+    iban         VARCHAR(64),
+    department   VARCHAR(128),
+    name         VARCHAR(255),
+    title        VARCHAR(255),
+    ein          VARCHAR(32),
+    ssn          VARCHAR(32),
+    user_agent   VARCHAR(512),
+    role         VARCHAR(32)
+);
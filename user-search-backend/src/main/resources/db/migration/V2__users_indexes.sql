@@ -0,0 +1,8 @@
+-- Lookup columns (findByEmail, username) and the sort keys offered by keyset pagination
+CREATE INDEX IF NOT EXISTS ix_users_email ON users (email);
+CREATE INDEX IF NOT EXISTS ix_users_username ON users (username);
+CREATE INDEX IF NOT EXISTS ix_users_last_first_name ON users (last_name, first_name);
+CREATE INDEX IF NOT EXISTS ix_users_first_name ON users (first_name);
+CREATE INDEX IF NOT EXISTS ix_users_ssn ON users (ssn);
+CREATE INDEX IF NOT EXISTS ix_users_role ON users (role);
+CREATE INDEX IF NOT EXISTS ix_users_age ON users (age);
@@ -0,0 +1,16 @@
+-- Incremental sync state: the content hash of every user last received from the source and the sync run that last
+-- saw it (source users not seen by a complete run are tombstoned), plus the resume position of the current run
+CREATE TABLE IF NOT EXISTS user_sync_hashes (
+    id           BIGINT PRIMARY KEY,
+    content_hash BIGINT NOT NULL,
+    seen_run     BIGINT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS ix_user_sync_hashes_seen_run ON user_sync_hashes (seen_run);
+
+CREATE TABLE IF NOT EXISTS sync_checkpoint (
+    name       VARCHAR(64) PRIMARY KEY,
+    run_id     BIGINT NOT NULL,
+    next_skip  INT NOT NULL,
+    completed  BOOLEAN NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,9 @@
+-- Persisted change feed (users.changes.persist): the most recent users.changes.capacity changes, reloaded on startup
+-- so consumers can resume from their last sequence number across restarts. payload is the user as JSON (UPSERT only)
+CREATE TABLE IF NOT EXISTS user_changes (
+    seq         BIGINT PRIMARY KEY,
+    change_type VARCHAR(16) NOT NULL,
+    user_id     BIGINT NOT NULL,
+    changed_at  TIMESTAMP WITH TIME ZONE NOT NULL,
+    payload     VARCHAR(16384)
+);
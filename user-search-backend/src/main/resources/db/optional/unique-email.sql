@@ -0,0 +1,2 @@
+-- Applied on every startup when users.schema.unique-email=true; fails if duplicate emails already exist
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_email ON users (email);
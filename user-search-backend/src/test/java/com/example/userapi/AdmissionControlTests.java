@@ -0,0 +1,86 @@
+package com.example.userapi;
+
+import com.example.userapi.config.AdmissionControlFilter;
+import com.example.userapi.config.ConcurrencyLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTests {
+
+    @Test
+    void testLimiterQueuesThenSheds() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, Duration.ofSeconds(10));
+        limiter.acquire().block();
+
+        AtomicBoolean queuedAcquired = new AtomicBoolean();
+        Disposable queued = limiter.acquire().subscribe(null, null, () -> queuedAcquired.set(true));
+        assertEquals(1, limiter.queued());
+        assertThrows(ConcurrencyLimiter.RejectedException.class, () -> limiter.acquire().block());
+
+        // Releasing hands the permit to the queued caller instead of freeing it
+        limiter.release();
+        assertTrue(queuedAcquired.get());
+        assertEquals(1, limiter.inFlight());
+        assertEquals(0, limiter.queued());
+        queued.dispose();
+        limiter.release();
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void testTimedOutWaiterLeavesNoPermitBehind() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10, Duration.ofMillis(50));
+        limiter.acquire().block();
+
+        assertThrows(ConcurrencyLimiter.RejectedException.class, () -> limiter.acquire().block());
+        assertEquals(0, limiter.queued());
+
+        limiter.release();
+        assertEquals(0, limiter.inFlight());
+        limiter.acquire().block();
+        assertEquals(1, limiter.inFlight());
+    }
+
+    @Test
+    void testSearchStormIsShedWithoutBlockingFind() {
+        AdmissionControlFilter filter = new AdmissionControlFilter(new SimpleMeterRegistry(), 1, 0, 1, 0,
+                Duration.ofMillis(100), Duration.ofSeconds(2));
+        Sinks.Empty<Void> slowSearch = Sinks.empty();
+        Disposable running = filter.filter(exchange("/api/users/search?query=viral"), ignored -> slowSearch.asMono())
+                .subscribe();
+
+        MockServerWebExchange shed = exchange("/api/users/search?query=viral");
+        filter.filter(shed, ignored -> Mono.empty()).block();
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, shed.getResponse().getStatusCode());
+        assertEquals("2", shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        MockServerWebExchange find = exchange("/api/users/find?id=1");
+        AtomicBoolean handled = new AtomicBoolean();
+        filter.filter(find, ignored -> Mono.fromRunnable(() -> handled.set(true))).block();
+        assertTrue(handled.get());
+        assertNotEquals(HttpStatus.TOO_MANY_REQUESTS, find.getResponse().getStatusCode());
+
+        // Once the running search completes its permit is free again
+        slowSearch.tryEmitEmpty();
+        assertTrue(running.isDisposed());
+        MockServerWebExchange next = exchange("/api/users/search?query=viral");
+        filter.filter(next, ignored -> Mono.empty()).block();
+        assertNotEquals(HttpStatus.TOO_MANY_REQUESTS, next.getResponse().getStatusCode());
+    }
+
+    private static MockServerWebExchange exchange(String uri) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(uri));
+    }
+}
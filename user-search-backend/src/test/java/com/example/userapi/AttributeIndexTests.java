@@ -0,0 +1,105 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.model.UserFilter;
+import com.example.userapi.search.AttributeIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttributeIndexTests {
+
+    private AttributeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new AttributeIndex();
+        index.index(user(1L, "admin", "female", 34, "CA", "Engineering"));
+        index.index(user(2L, "admin", "male", 38, "CA", "Engineering"));
+        index.index(user(3L, "user", "female", 31, "CA", "Engineering"));
+        index.index(user(4L, "admin", "female", 45, "CA", "Engineering"));
+        index.index(user(5L, "admin", "female", 30, "TX", "Engineering"));
+        index.index(user(6L, "moderator", "female", 40, "CA", "Sales"));
+    }
+
+    @Test
+    void testAndCombinesCategoricalAndAgeRange() {
+        UserFilter filter = UserFilter.and(List.of(
+                UserFilter.eq("role", "admin"),
+                UserFilter.eq("gender", "female"),
+                UserFilter.range("age", 30, 40),
+                UserFilter.eq("address.state", "ca"),
+                UserFilter.eq("company.department", "Engineering")));
+        assertArrayEquals(new long[]{1L}, index.filter(filter));
+    }
+
+    @Test
+    void testOrNotAndInConditions() {
+        UserFilter roles = new UserFilter();
+        roles.setField("role");
+        roles.setIn(List.of("user", "moderator"));
+        assertArrayEquals(new long[]{3L, 6L}, index.filter(roles));
+
+        UserFilter notCa = new UserFilter();
+        notCa.setNot(UserFilter.eq("address.state", "CA"));
+        assertArrayEquals(new long[]{5L}, index.filter(notCa));
+
+        UserFilter either = UserFilter.or(List.of(UserFilter.range("age", 45, null), UserFilter.eq("age", "30")));
+        assertArrayEquals(new long[]{4L, 5L}, index.filter(either));
+    }
+
+    @Test
+    void testUpdatesAndDeletesAreIncremental() {
+        index.index(user(1L, "user", "female", 50, "NY", "Sales"));
+        index.remove(2L);
+        assertArrayEquals(new long[]{4L, 5L}, index.filter(UserFilter.eq("role", "admin")));
+        assertArrayEquals(new long[]{1L, 4L}, index.filter(UserFilter.range("age", 41, null)));
+        assertArrayEquals(new long[]{1L}, index.filter(UserFilter.eq("address.state", "ny")));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void testFacetsCountValuesAndAgeBuckets() {
+        Map<String, Map<String, Integer>> facets = index.facets(null, null);
+        assertEquals(Map.of("admin", 4, "user", 1, "moderator", 1), facets.get("role"));
+        assertEquals(List.of("admin", "moderator", "user"), List.copyOf(facets.get("role").keySet()));
+        assertEquals(Map.of("CA", 5, "TX", 1), facets.get("address.state"));
+        assertEquals(Map.of("30-39", 4, "40-49", 2), facets.get("age"));
+
+        // Restricted to a filter and to a set of ids
+        Map<String, Map<String, Integer>> admins = index.facets(new long[]{1L, 2L, 3L, 6L},
+                UserFilter.eq("gender", "female"));
+        assertEquals(Map.of("admin", 1, "user", 1, "moderator", 1), admins.get("role"));
+        assertEquals(Map.of("30-39", 2, "40-49", 1), admins.get("age"));
+
+        index.remove(6L);
+        assertFalse(index.facets(null, null).get("company.department").containsKey("Sales"));
+    }
+
+    @Test
+    void testInvalidFiltersAreRejected() {
+        assertThrows(ResponseStatusException.class, () -> index.filter(UserFilter.eq("password", "secret")));
+        assertThrows(ResponseStatusException.class, () -> index.filter(UserFilter.range("role", 1, 2)));
+        assertThrows(ResponseStatusException.class, () -> index.filter(new UserFilter()));
+    }
+
+    private static User user(Long id, String role, String gender, int age, String state, String department) {
+        User user = new User();
+        user.setId(id);
+        user.setRole(role);
+        user.setGender(gender);
+        user.setAge(age);
+        User.Address address = new User.Address();
+        address.setState(state);
+        user.setAddress(address);
+        User.Company company = new User.Company();
+        company.setDepartment(department);
+        user.setCompany(company);
+        return user;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.search.FuzzyIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FuzzyIndexTests {
+
+    private FuzzyIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FuzzyIndex();
+        index.index(user(1L, "John", "Doe"));
+        index.index(user(2L, "Joan", "Dow"));
+        index.index(user(3L, "Jonathan", "Smith"));
+        index.index(user(4L, "Mary Ann", "Smyth"));
+    }
+
+    @Test
+    void testTranspositionCountsAsOneEdit() {
+        assertArrayEquals(new long[]{1L}, index.search("Jhon", 1, 10));
+    }
+
+    @Test
+    void testResultsAreRankedByEdits() {
+        // "john" is exact for 1 and one substitution away from "joan"
+        assertArrayEquals(new long[]{1L, 2L}, index.search("john", 1, 10));
+        assertArrayEquals(new long[]{1L}, index.search("john", 1, 1));
+        assertArrayEquals(new long[]{1L}, index.search("john", 0, 10));
+    }
+
+    @Test
+    void testEveryWordMustMatch() {
+        assertArrayEquals(new long[]{1L, 2L}, index.search("jon doe", 1, 10));
+        assertArrayEquals(new long[]{4L, 3L}, index.search("smyth", 1, 10));
+        assertArrayEquals(new long[]{4L}, index.search("ann smith", 1, 10));
+        assertArrayEquals(new long[]{3L}, index.search("jonathon smith", 2, 10));
+    }
+
+    @Test
+    void testShortWordsAreMatchedExactly() {
+        assertEquals(0, index.search("do", 2, 10).length);
+        // Three letters allow a single edit even when two are requested
+        assertArrayEquals(new long[]{1L, 2L}, index.search("doe", 2, 10));
+    }
+
+    @Test
+    void testRemovedUsersAreNotReturned() {
+        index.remove(1L);
+        assertEquals(0, index.search("jhon", 1, 10).length);
+        assertArrayEquals(new long[]{2L}, index.search("john", 1, 10));
+        index.index(user(2L, "Joan", "Smith"));
+        assertEquals(0, index.search("dow", 1, 10).length);
+    }
+
+    private static User user(Long id, String firstName, String lastName) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        return user;
+    }
+}
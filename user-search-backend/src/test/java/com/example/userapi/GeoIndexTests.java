@@ -0,0 +1,93 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.search.GeoIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeoIndexTests {
+
+    private GeoIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new GeoIndex();
+        index.index(user(1L, 37.7749, -122.4194)); // San Francisco
+        index.index(user(2L, 37.8044, -122.2712)); // Oakland
+        index.index(user(3L, 37.3382, -121.8863)); // San Jose
+        index.index(user(4L, 34.0522, -118.2437)); // Los Angeles
+        index.index(user(5L, 51.5074, -0.1278)); // London
+        index.index(user(6L, 64.0, 179.9)); // East of the antimeridian
+        index.index(user(7L, 64.0, -179.9)); // West of the antimeridian
+        index.index(user(8L, null, null));
+    }
+
+    @Test
+    void testHaversineDistance() {
+        assertEquals(559, GeoIndex.haversineKm(37.7749, -122.4194, 34.0522, -118.2437), 2);
+        assertEquals(0, GeoIndex.haversineKm(10, 10, 10, 10), 1e-9);
+    }
+
+    @Test
+    void testWithinIsOrderedByDistance() {
+        assertArrayEquals(new long[]{1L, 2L, 3L}, index.within(37.78, -122.42, 100, 10));
+        assertArrayEquals(new long[]{1L, 2L}, index.within(37.78, -122.42, 100, 2));
+        assertArrayEquals(new long[]{1L, 2L, 3L, 4L}, index.within(37.78, -122.42, 600, 10));
+        // The circle crosses the antimeridian
+        assertArrayEquals(new long[]{7L, 6L}, index.within(64.0, -179.95, 50, 10));
+    }
+
+    @Test
+    void testNearestWidensUntilKUsersAreFound() {
+        assertArrayEquals(new long[]{5L}, index.nearest(48.8566, 2.3522, 1));
+        assertArrayEquals(new long[]{4L, 3L, 2L}, index.nearest(33.0, -117.0, 3));
+        // Fewer located users than asked for
+        assertEquals(7, index.nearest(0, 0, 50).length);
+    }
+
+    @Test
+    void testUpdatesAndDeletesAreIncremental() {
+        index.index(user(5L, 37.7750, -122.4195));
+        index.remove(1L);
+        index.index(user(2L, null, null));
+        assertArrayEquals(new long[]{5L, 3L}, index.within(37.78, -122.42, 100, 10));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void testNearestMatchesBruteForce() {
+        GeoIndex random = new GeoIndex();
+        Random generator = new Random(7);
+        double[][] points = new double[5_000][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new double[]{generator.nextDouble() * 180 - 90, generator.nextDouble() * 360 - 180};
+            random.index(user((long) i, points[i][0], points[i][1]));
+        }
+        for (int query = 0; query < 20; query++) {
+            double lat = generator.nextDouble() * 180 - 90;
+            double lng = generator.nextDouble() * 360 - 180;
+            long[] nearest = random.nearest(lat, lng, 5);
+            double fifth = GeoIndex.haversineKm(lat, lng, points[(int) nearest[4]][0], points[(int) nearest[4]][1]);
+            int closer = 0;
+            for (double[] point : points) {
+                if (GeoIndex.haversineKm(lat, lng, point[0], point[1]) < fifth) {
+                    closer++;
+                }
+            }
+            assertEquals(4, closer);
+        }
+    }
+
+    private static User user(Long id, Double lat, Double lng) {
+        User user = new User();
+        user.setId(id);
+        User.Address address = new User.Address();
+        address.setCoordinates(lat == null ? null : new User.Coordinates(lat, lng));
+        user.setAddress(address);
+        return user;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.search.NGramIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NGramIndexTests {
+
+    private NGramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NGramIndex();
+        index.index(user(1L, "John", "Doe", "123-45-6789"));
+        index.index(user(2L, "Jane", "Doe", "987-65-4321"));
+        index.index(user(3L, "Johnny", "Walker", "555-12-3456"));
+    }
+
+    @Test
+    void testSearchByNameSubstringIgnoresCase() {
+        assertArrayEquals(new long[]{1L, 3L}, sorted(index.search("OHN")));
+        assertArrayEquals(new long[]{1L, 2L}, sorted(index.search("doe")));
+    }
+
+    @Test
+    void testSearchBySsn() {
+        assertArrayEquals(new long[]{2L}, index.search("65-43"));
+    }
+
+    @Test
+    void testShortQueryFallsBackToScan() {
+        assertArrayEquals(new long[]{1L, 2L, 3L}, sorted(index.search("j")));
+        assertArrayEquals(new long[]{3L}, index.search("wa"));
+    }
+
+    @Test
+    void testGramsFromDifferentFieldsDoNotMatch() {
+        // "ndo" only appears across the first name/last name boundary of John Doe
+        assertEquals(0, index.search("ndo").length);
+    }
+
+    @Test
+    void testUpdateReplacesPreviousTerms() {
+        index.index(user(1L, "Jonathan", "Smith", "123-45-6789"));
+        assertArrayEquals(new long[]{2L}, index.search("doe"));
+        assertArrayEquals(new long[]{1L}, index.search("smit"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testRemoveDropsUserAndReusesOrdinal() {
+        index.remove(1L);
+        assertArrayEquals(new long[]{3L}, index.search("john"));
+        index.index(user(4L, "Johanna", "Doe", "111-22-3333"));
+        assertArrayEquals(new long[]{2L, 4L}, sorted(index.search("doe")));
+        assertEquals(3, index.size());
+    }
+
+    private static long[] sorted(long[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static User user(Long id, String firstName, String lastName, String ssn) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setSsn(ssn);
+        return user;
+    }
+}
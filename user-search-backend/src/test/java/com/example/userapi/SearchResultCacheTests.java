@@ -0,0 +1,107 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserProjection;
+import com.example.userapi.service.SearchResultCache;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchResultCacheTests {
+
+    @Test
+    void testConcurrentIdenticalSearchesShareOneLoad() {
+        SearchResultCache cache = new SearchResultCache(1000, 100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<List<User>> database = Sinks.one();
+
+        // Three requests arrive while the first load is still running; the query spelling differs only in case
+        Flux<List<User>> requests = Flux.merge(
+                cache.get("Emily", 1, () -> load(loads, database)).collectList(),
+                cache.get("emily", 1, () -> load(loads, database)).collectList(),
+                cache.get(" EMILY ", 1, () -> load(loads, database)).collectList());
+        List<User> emily = List.of(user(1L, "Emily"));
+        List<List<User>> results = requests
+                .doOnSubscribe(subscription -> database.tryEmitValue(emily))
+                .collectList()
+                .block();
+
+        assertNotNull(results);
+        assertEquals(List.of(emily, emily, emily), results);
+        assertEquals(1, loads.get());
+
+        // Completed results are served until a write clears the cache
+        assertEquals(emily, cache.get("emily", 1, () -> load(loads, database)).collectList().block());
+        assertEquals(1, loads.get());
+        cache.invalidateAll();
+        cache.get("emily", 0, () -> Flux.<User>empty().doOnSubscribe(subscription -> loads.incrementAndGet()))
+                .blockLast();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testFailedLoadsAreNotCached() {
+        SearchResultCache cache = new SearchResultCache(1000, 100, Duration.ofMinutes(1));
+        assertThrows(IllegalStateException.class,
+                () -> cache.get("emily", 1, () -> Flux.error(new IllegalStateException("pool exhausted")))
+                        .blockLast());
+
+        List<User> emily = List.of(user(1L, "Emily"));
+        assertEquals(emily, cache.get("emily", 1, () -> Flux.fromIterable(emily)).collectList().block());
+    }
+
+    @Test
+    void testLargeResultsStreamWithoutBeingShared() {
+        SearchResultCache cache = new SearchResultCache(1000, 2, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        Flux<User> database = Flux.range(1, 3).map(id -> user(id, "Emily"))
+                .doOnSubscribe(subscription -> loads.incrementAndGet());
+
+        // Each request reads the users itself, and the first one arrives before the last has been read
+        assertEquals(1L, cache.get("emily", 3, () -> database).blockFirst().getId());
+        assertEquals(3, cache.get("emily", 3, () -> database).count().block());
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.cache().estimatedSize());
+    }
+
+    @Test
+    void testProjectedSearchesAreSharedPerFields() {
+        SearchResultCache cache = new SearchResultCache(1000, 100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        User emily = user(1L, "Emily");
+        Flux<Map<String, Object>> summaries = Flux.just(UserProjection.SUMMARY.apply(emily))
+                .doOnSubscribe(subscription -> loads.incrementAndGet());
+
+        List<Map<String, Object>> first = cache.get("Emily", UserProjection.SUMMARY, 1, () -> summaries)
+                .collectList().block();
+        assertEquals(first, cache.get("emily", UserProjection.parse("summary"), 1, () -> summaries)
+                .collectList().block());
+        assertEquals(1, loads.get());
+
+        // Other fields, and the whole users of the same query, are loaded and cached on their own
+        cache.get("emily", UserProjection.parse("firstName"), 1, () -> summaries).blockLast();
+        assertEquals(2, loads.get());
+        assertEquals(emily, cache.get("emily", 1, () -> Flux.just(emily)).blockFirst());
+        assertEquals(3, cache.cache().estimatedSize());
+    }
+
+    private static Flux<User> load(AtomicInteger loads, Sinks.One<List<User>> database) {
+        loads.incrementAndGet();
+        return database.asMono().flatMapIterable(users -> users);
+    }
+
+    private static User user(long id, String firstName) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName(firstName);
+        return user;
+    }
+}
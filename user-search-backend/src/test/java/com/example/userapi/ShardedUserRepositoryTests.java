@@ -0,0 +1,149 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.ShardedUserRepository;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.search.UserIndexer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "users.shards.count=3",
+        "users.shards.url=r2dbc:h2:mem:///sharded-tests-{shard};DB_CLOSE_DELAY=-1",
+        "users.shards.email-directory.max-size=20"})
+public class ShardedUserRepositoryTests {
+
+    private static final int USERS = 60;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserIndexer userIndexer;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll().block();
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= USERS; id++) {
+            // Every fifth user has no last name, to check that NULLs are merged where the database sorts them
+            users.add(new User(id, "Shard" + id, id % 5 == 0 ? null : "Last" + (id * 7 % 13), null, 20 + (int) (id % 40),
+                    "female", "shard" + id + "@example.com", null, "shard" + id, null, null, null, null, null, null,
+                    null, null, null, null, null, null, "555-00-" + id, null, "user"));
+        }
+        userRepository.upsertAll(users).block();
+        userIndexer.rebuild().block();
+    }
+
+    @Test
+    void testUsersAreSpreadAndRoutedById() {
+        ShardedUserRepository sharded = assertInstanceOf(ShardedUserRepository.class, userRepository);
+        assertEquals(3, sharded.shardCount());
+        long total = 0;
+        for (int shard = 0; shard < sharded.shardCount(); shard++) {
+            List<User> stored = sharded.shard(shard).findAll().collectList().block();
+            assertNotNull(stored);
+            assertFalse(stored.isEmpty(), "shard " + shard + " holds no users");
+            for (User user : stored) {
+                assertEquals(shard, ShardedUserRepository.shardOf(user.getId(), 3));
+            }
+            total += stored.size();
+        }
+        assertEquals(USERS, total);
+        assertEquals(USERS, userRepository.count().block());
+
+        // The directory keeps only some of the written emails; the others are found by asking every shard
+        assertTrue(sharded.emailDirectorySize() <= 20, "directory holds " + sharded.emailDirectorySize() + " emails");
+        for (long id = 1; id <= USERS; id++) {
+            User byEmail = userRepository.findByEmail("shard" + id + "@example.com").block();
+            assertNotNull(byEmail);
+            assertEquals(id, byEmail.getId());
+        }
+        assertTrue(sharded.emailDirectorySize() <= 20, "directory holds " + sharded.emailDirectorySize() + " emails");
+
+        // Users written without an id are numbered after the largest id of any shard
+        User unkeyed = new User();
+        unkeyed.setFirstName("Unkeyed");
+        userRepository.upsertAll(List.of(unkeyed)).block();
+        assertEquals(USERS + 1L, unkeyed.getId());
+        assertNotNull(userRepository.findById(USERS + 1L).block());
+    }
+
+    @Test
+    void testPagesAreMergedInSortOrderAcrossShards() {
+        List<User> all = userRepository.findAll().collectList().block();
+        assertNotNull(all);
+        Comparator<User> lastNameAscending = Comparator.comparing(User::getLastName,
+                Comparator.nullsFirst(Comparator.<String>naturalOrder())).thenComparing(User::getId);
+        List<Long> expected = all.stream().sorted(lastNameAscending.reversed()).map(User::getId).toList();
+
+        List<Long> paged = new ArrayList<>();
+        String after = null;
+        do {
+            String cursor = after;
+            Map<String, Object> page = webTestClient.get()
+                    .uri(uri -> uri.path("/api/users").queryParam("limit", 7).queryParam("sort", "lastName,desc")
+                            .queryParamIfPresent("after", Optional.ofNullable(cursor)).build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(new ParameterizedTypeReference<Map<String, Object>>() {
+                    })
+                    .returnResult().getResponseBody();
+            assertNotNull(page);
+            for (Object item : (List<?>) page.get("items")) {
+                paged.add(((Number) ((Map<?, ?>) item).get("id")).longValue());
+            }
+            after = (String) page.get("nextCursor");
+        } while (after != null);
+        assertEquals(expected, paged);
+
+        List<Long> streamed = userRepository.streamAll().map(User::getId).collectList().block();
+        assertEquals(all.stream().map(User::getId).sorted().toList(), streamed);
+    }
+
+    @Test
+    void testSearchAndWritesReachTheOwningShard() {
+        webTestClient.get().uri("/api/users/search?query=shard1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class).hasSize(11);
+
+        webTestClient.patch().uri("/api/users/17")
+                .bodyValue(Map.of("email", "moved17@example.com"))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/api/users/find?email=moved17@example.com")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.id").isEqualTo(17);
+        webTestClient.get().uri("/api/users/find?email=shard17@example.com")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("User not found with email: shard17@example.com");
+
+        webTestClient.post().uri("/api/users/batch-delete")
+                .bodyValue(List.of(1, 2, 3, 4, 5, 6, 999))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.affected").isEqualTo(6)
+                .jsonPath("$.notFound[0]").isEqualTo(999);
+        assertEquals(USERS - 6L, userRepository.count().block());
+        assertNull(userRepository.findById(3L).block());
+    }
+}
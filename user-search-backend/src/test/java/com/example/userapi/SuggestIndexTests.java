@@ -0,0 +1,76 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.search.SuggestIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuggestIndexTests {
+
+    private SuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SuggestIndex();
+        index.index(user(1L, "Johnny", "Walker", "jwalker", "johnny.walker@example.com"));
+        index.index(user(2L, "John", "Doe", "jdoe", "john.doe@example.com"));
+        index.index(user(3L, "Jane", "Johnson", "jjohnson", "jane.johnson@example.com"));
+        index.index(user(4L, "Emily", "Jo", "emilyj", "emily@example.com"));
+    }
+
+    @Test
+    void testShortestCompletionsRankFirst() {
+        assertEquals(List.of(4L, 2L, 1L, 3L), ids(index.suggest("JO", 10)));
+        assertEquals("Emily Jo", index.suggest("jo", 1).get(0).displayName());
+    }
+
+    @Test
+    void testTopKIsBounded() {
+        assertEquals(List.of(4L, 2L), ids(index.suggest("jo", 2)));
+    }
+
+    @Test
+    void testMatchesUsernameAndEmail() {
+        assertEquals(List.of(3L), ids(index.suggest("jjo", 10)));
+        assertEquals(List.of(4L), ids(index.suggest("emily@", 10)));
+        assertEquals(List.of(), ids(index.suggest("x", 10)));
+    }
+
+    @Test
+    void testPrefixEndingInsideAnEdge() {
+        // "joh" stops in the middle of the compressed "john" edge
+        assertEquals(List.of(2L, 1L, 3L), ids(index.suggest("joh", 10)));
+        assertEquals(List.of(1L), ids(index.suggest("johnny.w", 10)));
+    }
+
+    @Test
+    void testUpdatesAndDeletesAreIncremental() {
+        index.index(user(2L, "Jonathan", "Smith", "jsmith", "jonathan.smith@example.com"));
+        assertEquals(List.of(4L, 1L, 3L, 2L), ids(index.suggest("jo", 10)));
+        assertEquals(List.of(), ids(index.suggest("doe", 10)));
+
+        index.remove(4L);
+        index.remove(1L);
+        assertEquals(List.of(3L, 2L), ids(index.suggest("jo", 10)));
+        assertEquals(List.of(3L), ids(index.suggest("john", 10)));
+        assertEquals(2, index.size());
+    }
+
+    private static List<Long> ids(List<SuggestIndex.Suggestion> suggestions) {
+        return suggestions.stream().map(SuggestIndex.Suggestion::id).toList();
+    }
+
+    private static User user(Long id, String firstName, String lastName, String username, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setUsername(username);
+        user.setEmail(email);
+        return user;
+    }
+}
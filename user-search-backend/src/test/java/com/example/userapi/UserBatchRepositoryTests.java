@@ -0,0 +1,152 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserPatch;
+import com.example.userapi.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class UserBatchRepositoryTests {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("DELETE FROM users").then().block();
+    }
+
+    @Test
+    void testUpsertAllInsertsThenUpdatesInPlace() {
+        List<User> users = users(1, 600, true);
+        assertEquals(600L, userRepository.upsertAll(users).block());
+
+        users.forEach(user -> {
+            user.setLastName("Updated");
+            user.getAddress().setCity("Denver");
+        });
+        userRepository.upsertAll(users).block();
+
+        assertEquals(600L, userRepository.count().block());
+        User reloaded = userRepository.findById(42L).block();
+        assertNotNull(reloaded);
+        assertEquals("Updated", reloaded.getLastName());
+        assertEquals("Denver", reloaded.getAddress().getCity());
+        assertEquals(42.5, reloaded.getAddress().getCoordinates().getLat());
+        assertEquals("Engineering", reloaded.getCompany().getDepartment());
+    }
+
+    @Test
+    void testUpsertAllInsertsUsersWithoutId() {
+        List<User> users = users(1, 3, false);
+        assertEquals(3L, userRepository.upsertAll(users).block());
+        assertEquals(3L, userRepository.count().block());
+        assertNotNull(users.get(2).getId());
+        assertEquals("First3", userRepository.findById(users.get(2).getId()).map(User::getFirstName).block());
+    }
+
+    @Test
+    void testPatchAllUpdatesOnlyTheGivenColumns() {
+        userRepository.upsertAll(users(1, 300, true)).block();
+        List<UserPatch> patches = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            patches.add(UserPatch.parse(id, Map.of("phone", "+1 555 " + id)));
+        }
+        patches.add(UserPatch.parse(7L, Map.of("address", Map.of("city", "Denver", "coordinates", Map.of("lat", 1)))));
+        patches.add(UserPatch.parse(999L, Map.of("phone", "nobody")));
+
+        List<User> patched = userRepository.patchAll(patches).collectList().block();
+        assertNotNull(patched);
+        assertEquals(301, patched.size());
+        User reloaded = userRepository.findById(7L).block();
+        assertNotNull(reloaded);
+        assertEquals("+1 555 7", reloaded.getPhone());
+        assertEquals("Denver", reloaded.getAddress().getCity());
+        assertEquals(1.0, reloaded.getAddress().getCoordinates().getLat());
+        assertEquals(-97.7, reloaded.getAddress().getCoordinates().getLng());
+        assertEquals("Last7", reloaded.getLastName());
+    }
+
+    @Test
+    void testReplaceAndDeleteReportAffectedRows() {
+        userRepository.upsertAll(users(1, 5, true)).block();
+        User user = users(3, 1, true).get(0);
+        user.getCompany().setDepartment("Legal");
+        assertEquals(1L, userRepository.replace(user).block());
+        assertEquals("Legal", userRepository.findById(3L).map(u -> u.getCompany().getDepartment()).block());
+        user.setId(99L);
+        assertEquals(0L, userRepository.replace(user).block());
+
+        assertEquals(List.of(2L, 4L), userRepository.deleteByIds(List.of(2L, 42L, 4L)).collectList().block());
+        assertEquals(3L, userRepository.count().block());
+    }
+
+    // Compares rows/sec of the batched upsert against ReactiveCrudRepository.saveAll; run with -Dbenchmark=true.
+    // The entity converter cannot write @Embedded values, so the saveAll baseline uses users without them.
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkUpsertAllAgainstSaveAll() {
+        int rows = Integer.getInteger("benchmark.rows", 50_000);
+        for (int round = 0; round < 3; round++) {
+            databaseClient.sql("DELETE FROM users").then().block();
+            long saveAllNanos = time(() -> userRepository.saveAll(Flux.fromIterable(withoutEmbedded(users(1, rows, false)))).then().block());
+            databaseClient.sql("DELETE FROM users").then().block();
+            long upsertNanos = time(() -> userRepository.upsertAll(users(1, rows, true)).block());
+            long reUpsertNanos = time(() -> userRepository.upsertAll(users(1, rows, true)).block());
+            System.out.printf("round %d: saveAll %,.0f rows/sec, upsertAll (insert) %,.0f rows/sec, upsertAll (update) %,.0f rows/sec%n",
+                    round, rowsPerSecond(rows, saveAllNanos), rowsPerSecond(rows, upsertNanos), rowsPerSecond(rows, reUpsertNanos));
+        }
+    }
+
+    private static long time(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return System.nanoTime() - start;
+    }
+
+    private static double rowsPerSecond(int rows, long nanos) {
+        return rows * 1_000_000_000.0 / nanos;
+    }
+
+    private static List<User> withoutEmbedded(List<User> users) {
+        users.forEach(user -> {
+            user.setHair(null);
+            user.setAddress(null);
+            user.setBank(null);
+            user.setCompany(null);
+        });
+        return users;
+    }
+
+    private static List<User> users(int from, int count, boolean withIds) {
+        List<User> users = new ArrayList<>(count);
+        for (long id = from; id < from + count; id++) {
+            User user = new User(withIds ? id : null, "First" + id, "Last" + id, "Maiden", 30, "female",
+                    "user" + id + "@example.com", "+1 555 0100", "user" + id, "secret", "1990-1-1",
+                    "https://example.com/" + id + ".png", "A+", 170.5, 65.2, "Green",
+                    new User.Hair("Brown", "Curly"),
+                    new User.Address("1 Main St", "Austin", "Texas", "TX", "73301",
+                            new User.Coordinates(id + 0.5, -97.7), "United States"),
+                    new User.Bank("03/29", "1234567890123456", "Visa", "USD", "DE00 1234"),
+                    new User.Company("Engineering", "Acme", "Developer"),
+                    "12-3456789", "123-45-" + id, "Mozilla/5.0", "user");
+            users.add(user);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.model.UserChange;
+import com.example.userapi.repository.UserChangeStore;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.search.UserIndexer;
+import com.example.userapi.service.UserChangeFeed;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "users.changes.capacity=16",
+        "users.changes.persist=true",
+        "users.changes.flush-interval=20ms"})
+public class UserChangeFeedTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserIndexer userIndexer;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private UserChangeFeed userChangeFeed;
+
+    @Autowired
+    private UserChangeStore userChangeStore;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("DELETE FROM users").then().block();
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            users.add(new User(id, "Changed" + id, "Last" + id, null, 30, null, "changed" + id + "@example.com",
+                    null, "changed" + id, null, null, null, null, null, null, null, null, null, null, null, null,
+                    "123-45-" + id, null, "user"));
+        }
+        userRepository.upsertAll(users).block();
+        userIndexer.rebuild().block();
+    }
+
+    @Test
+    void testConsumerResumesFromItsLastSequenceNumber() throws Exception {
+        UserChangeFeed feed = new UserChangeFeed(null, 8, false, Duration.ofMillis(20));
+        feed.upserted(List.of(user(1), user(2), user(3)));
+        feed.deleted(2);
+        assertEquals(4, feed.latestSeq());
+
+        List<UserChange> resumed = feed.changesSince(2).take(2).collectList().block(Duration.ofSeconds(5));
+        assertNotNull(resumed);
+        assertEquals(List.of(3L, 4L), resumed.stream().map(UserChange::getSeq).toList());
+        assertEquals(UserChange.Type.UPSERT, resumed.get(0).getType());
+        assertEquals(3L, resumed.get(0).getUser().getId());
+        assertEquals(UserChange.Type.DELETE, resumed.get(1).getType());
+        assertEquals(2L, resumed.get(1).getUserId());
+        assertNull(resumed.get(1).getUser());
+
+        // The backlog is followed by the changes written after subscribing
+        CompletableFuture<List<UserChange>> live = feed.changesSince(3).take(3).collectList().toFuture();
+        feed.upserted(List.of(user(4), user(5)));
+        assertEquals(List.of(4L, 5L, 6L), live.get(5, TimeUnit.SECONDS).stream().map(UserChange::getSeq).toList());
+    }
+
+    @Test
+    void testConsumerBehindTheRingMustResync() {
+        UserChangeFeed feed = new UserChangeFeed(null, 4, false, Duration.ofMillis(20));
+        for (long id = 1; id <= 6; id++) {
+            feed.deleted(id);
+        }
+
+        UserChangeFeed.ResyncRequiredException tooOld = assertThrows(UserChangeFeed.ResyncRequiredException.class,
+                () -> feed.changesSince(1).blockFirst(Duration.ofSeconds(5)));
+        assertEquals(new UserChangeFeed.Resync(3, 6), tooOld.resync());
+        assertEquals(3L, feed.changesSince(2).blockFirst(Duration.ofSeconds(5)).getSeq());
+
+        // A position the feed never reached, e.g. from before a restart without persistence
+        assertThrows(UserChangeFeed.ResyncRequiredException.class,
+                () -> feed.changesSince(9).blockFirst(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void testSlowConsumerIsBoundedAndToldToResync() {
+        UserChangeFeed feed = new UserChangeFeed(null, 4, false, Duration.ofMillis(20));
+        // The subscriber requests nothing while 300 changes are written: it buffers at most 256 of them, and the
+        // ring has overwritten the next one by the time it asks for more
+        StepVerifier.create(feed.changesSince(0), 0)
+                .then(() -> {
+                    for (long id = 1; id <= 300; id++) {
+                        feed.deleted(id);
+                    }
+                })
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextCount(256)
+                .expectError(UserChangeFeed.ResyncRequiredException.class)
+                .verify(Duration.ofSeconds(5));
+        assertEquals(0, feed.subscribers());
+    }
+
+    @Test
+    void testWritesStreamAsServerSentEvents() {
+        long since = userChangeFeed.latestSeq();
+        webTestClient.patch().uri("/api/users/2")
+                .bodyValue(Map.of("age", 41))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.delete().uri("/api/users/3")
+                .exchange()
+                .expectStatus().isOk();
+
+        List<ServerSentEvent<Map<String, Object>>> events = streamChanges("/api/users/changes?since=" + since, 2);
+        assertEquals("upsert", events.get(0).event());
+        assertEquals(Long.toString(since + 1), events.get(0).id());
+        assertEquals(41, ((Map<?, ?>) events.get(0).data().get("user")).get("age"));
+        assertEquals("delete", events.get(1).event());
+        assertEquals(3, events.get(1).data().get("userId"));
+
+        // An EventSource reconnecting with Last-Event-ID resumes after it
+        List<ServerSentEvent<Map<String, Object>>> resumed = webTestClient.get().uri("/api/users/changes")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", Long.toString(since + 1))
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<Map<String, Object>>>() {
+                })
+                .getResponseBody()
+                .filter(event -> event.event() != null)
+                .take(1)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        assertNotNull(resumed);
+        assertEquals(Long.toString(since + 2), resumed.get(0).id());
+    }
+
+    @Test
+    void testStreamFallenOutOfTheRingEndsWithResync() {
+        for (int age = 20; age < 40; age++) {
+            webTestClient.patch().uri("/api/users/1")
+                    .bodyValue(Map.of("age", age))
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+        long latest = userChangeFeed.latestSeq();
+
+        List<ServerSentEvent<Map<String, Object>>> events = webTestClient.get().uri("/api/users/changes?since=0")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<Map<String, Object>>>() {
+                })
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        assertNotNull(events);
+        assertEquals(1, events.size());
+        assertEquals("resync", events.get(0).event());
+        assertEquals(latest, ((Number) events.get(0).data().get("latestSeq")).longValue());
+        assertEquals(latest - 15, ((Number) events.get(0).data().get("oldestSeq")).longValue());
+    }
+
+    @Test
+    void testPersistedChangesAreReloaded() throws Exception {
+        webTestClient.patch().uri("/api/users/4")
+                .bodyValue(Map.of("firstName", "Persisted"))
+                .exchange()
+                .expectStatus().isOk();
+        long latest = userChangeFeed.latestSeq();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (userChangeStore.latest(1).blockLast() == null
+                || userChangeStore.latest(1).blockLast().getSeq() < latest) {
+            assertTrue(System.nanoTime() < deadline, "change " + latest + " was not persisted");
+            Thread.sleep(20);
+        }
+
+        // A restarted node continues the sequence and still serves the recent changes
+        UserChangeFeed restarted = new UserChangeFeed(userChangeStore, 16, true, Duration.ofMillis(20));
+        restarted.afterPropertiesSet();
+        try {
+            assertEquals(latest, restarted.latestSeq());
+            UserChange last = restarted.changesSince(latest - 1).blockFirst(Duration.ofSeconds(5));
+            assertNotNull(last);
+            assertEquals(UserChange.Type.UPSERT, last.getType());
+            assertEquals("Persisted", last.getUser().getFirstName());
+        } finally {
+            restarted.destroy();
+        }
+    }
+
+    private List<ServerSentEvent<Map<String, Object>>> streamChanges(String uri, int count) {
+        List<ServerSentEvent<Map<String, Object>>> events = webTestClient.get().uri(uri)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<Map<String, Object>>>() {
+                })
+                .getResponseBody()
+                .filter(event -> event.event() != null)
+                .take(count)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        assertNotNull(events);
+        return events;
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName("Feed" + id);
+        return user;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.userapi;
+
+import com.example.userapi.config.CodecConfig;
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.search.UserIndexer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class UserEncodingTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserIndexer userIndexer;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("DELETE FROM users").then().block();
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            users.add(new User(id, "Encoded" + id, "Last" + id, null, 30, "female", "encoded" + id + "@example.com",
+                    null, "encoded" + id, null, null, null, null, null, null, null, null,
+                    new User.Address("1 Main St", "Austin", "Texas", "TX", "78701",
+                            new User.Coordinates(30.2, -97.7), "United States"),
+                    null, new User.Company("Engineering", "Acme", "Developer"), null, "123-45-" + id, null, "user"));
+        }
+        userRepository.upsertAll(users).block();
+        userIndexer.rebuild().block();
+    }
+
+    @Test
+    void testUsersAreNegotiatedAsSmileAndCbor() throws IOException {
+        byte[] json = body(MediaType.APPLICATION_JSON);
+        byte[] smile = body(CodecConfig.APPLICATION_SMILE);
+        byte[] cbor = body(MediaType.APPLICATION_CBOR);
+
+        ObjectMapper jsonMapper = new ObjectMapper();
+        User[] expected = jsonMapper.readValue(json, User[].class);
+        assertEquals(50, expected.length);
+        assertArrayEquals(expected, new ObjectMapper(new SmileFactory()).readValue(smile, User[].class));
+        assertArrayEquals(expected, new ObjectMapper(new CBORFactory()).readValue(cbor, User[].class));
+        assertTrue(smile.length < json.length);
+        assertTrue(cbor.length < json.length);
+    }
+
+    @Test
+    void testWebClientDecodesSmile() {
+        List<User> users = webClientBuilder.baseUrl("http://localhost:" + port).build()
+                .get().uri("/api/users/search?query=Encoded1")
+                .accept(CodecConfig.APPLICATION_SMILE)
+                .retrieve()
+                .bodyToFlux(User.class)
+                .collectList()
+                .block();
+
+        assertNotNull(users);
+        assertFalse(users.isEmpty());
+        assertTrue(users.stream().allMatch(user -> user.getFirstName().startsWith("Encoded1")));
+    }
+
+    // java.net.http leaves the response encoded, unlike the WebTestClient connector, which decompresses it
+    @Test
+    void testLargeResponsesAreCompressed() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<byte[]> all = client.send(gzipRequest("/api/users"), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, all.statusCode());
+        assertEquals("gzip", all.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(all.body()))) {
+            assertEquals(50, new ObjectMapper().readValue(gzip, User[].class).length);
+        }
+
+        // A single user is below server.compression.min-response-size
+        HttpResponse<byte[]> one = client.send(gzipRequest("/api/users/find?id=1"),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, one.statusCode());
+        assertTrue(one.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isEmpty());
+    }
+
+    private HttpRequest gzipRequest(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build();
+    }
+
+    private byte[] body(MediaType mediaType) {
+        byte[] body = webTestClient.get().uri("/api/users")
+                .accept(mediaType)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(mediaType)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(body);
+        return body;
+    }
+}
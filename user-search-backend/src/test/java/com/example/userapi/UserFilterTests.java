@@ -0,0 +1,98 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.model.UserFilter;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.search.UserIndexer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class UserFilterTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserIndexer userIndexer;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("DELETE FROM users").then().block();
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            users.add(new User(id, "Filtered" + id, "Last" + id, null, 20 + (int) id, id % 2 == 0 ? "female" : "male",
+                    "filtered" + id + "@example.com", null, "filtered" + id, null, null, null, null, null, null, null,
+                    null, new User.Address("1 Main St", "Austin", id <= 10 ? "Texas" : "California", null, null, null,
+                    "United States"), null, null, null, "123-45-" + id, null, id % 4 == 0 ? "admin" : "user"));
+        }
+        userRepository.upsertAll(users).block();
+        userIndexer.rebuild().block();
+    }
+
+    @Test
+    void testFilterPagesThroughMatchesInIdOrder() {
+        // Women aged 24..40 outside California: ids 4, 6, 8 and 10
+        UserFilter notCalifornia = new UserFilter();
+        notCalifornia.setNot(UserFilter.eq("address.state", "california"));
+        UserFilter filter = UserFilter.and(List.of(UserFilter.eq("gender", "female"),
+                UserFilter.range("age", 24, 40), notCalifornia));
+
+        Map<?, ?> first = filter(filter, "/api/users/filter?limit=3&fields=email");
+        assertEquals(List.of(4, 6, 8), ids(first));
+        assertEquals(List.of("id", "email"), List.copyOf(((Map<?, ?>) ((List<?>) first.get("items")).get(0)).keySet()));
+        assertNotNull(first.get("nextCursor"));
+
+        Map<?, ?> second = filter(filter, "/api/users/filter?limit=3&after=" + first.get("nextCursor"));
+        assertEquals(List.of(10), ids(second));
+        assertNull(second.get("nextCursor"));
+    }
+
+    @Test
+    void testFacetsFollowQueryAndUpdates() {
+        // filtered1 and filtered10-19
+        Map<?, ?> facets = webTestClient.get().uri("/api/users/facets?query=filtered1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Map.class).returnResult().getResponseBody();
+        assertEquals(Map.of("Texas", 2, "California", 9), facets.get("address.state"));
+        assertEquals(Map.of("user", 9, "admin", 2), facets.get("role"));
+
+        webTestClient.delete().uri("/api/users/12").exchange().expectStatus().isOk();
+        Map<?, ?> afterDelete = webTestClient.post().uri("/api/users/facets")
+                .bodyValue(UserFilter.eq("role", "admin"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Map.class).returnResult().getResponseBody();
+        assertEquals(Map.of("admin", 4), afterDelete.get("role"));
+        assertEquals(Map.of("20-29", 2, "30-39", 1, "40-49", 1), afterDelete.get("age"));
+    }
+
+    private Map<?, ?> filter(UserFilter filter, String uri) {
+        return webTestClient.post().uri(uri)
+                .bodyValue(filter)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Map.class).returnResult().getResponseBody();
+    }
+
+    private static List<?> ids(Map<?, ?> page) {
+        return ((List<?>) page.get("items")).stream().map(item -> ((Map<?, ?>) item).get("id")).toList();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.service.UserLookupCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserLookupCacheTests {
+
+    private final Map<Long, User> database = new HashMap<>();
+    private final AtomicInteger idLoads = new AtomicInteger();
+    private final AtomicInteger emailLoads = new AtomicInteger();
+    private UserLookupCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserLookupCache(1000, Duration.ofMinutes(1));
+        database.put(1L, user(1L, "john.doe@example.com"));
+    }
+
+    @Test
+    void testRepeatedLookupsHitTheCache() {
+        assertEquals(1L, findById(1L).block().getId());
+        assertEquals(1L, findById(1L).block().getId());
+        assertEquals("john.doe@example.com", findByEmail("john.doe@example.com").block().getEmail());
+
+        assertEquals(1, idLoads.get());
+        assertEquals(0, emailLoads.get());
+        UserLookupCache.Stats stats = cache.stats();
+        assertEquals(1, stats.idMisses());
+        assertEquals(2, stats.idHits());
+        assertEquals(1, stats.emailHits());
+    }
+
+    @Test
+    void testConcurrentMissesCollapseIntoOneLoad() {
+        List<User> users = Flux.range(0, 50)
+                .flatMap(i -> i % 2 == 0 ? findById(1L) : findByEmail("john.doe@example.com"))
+                .collectList()
+                .block();
+
+        assertEquals(50, users.size());
+        assertEquals(1, idLoads.get());
+        assertEquals(1, emailLoads.get());
+    }
+
+    @Test
+    void testEmailChangeInvalidatesBothKeys() {
+        findById(1L).block();
+        database.put(1L, user(1L, "john.smith@example.com"));
+        cache.invalidate(1L);
+
+        assertNull(findByEmail("john.doe@example.com").block());
+        assertEquals(1L, findByEmail("john.smith@example.com").block().getId());
+        assertEquals("john.smith@example.com", findById(1L).block().getEmail());
+    }
+
+    @Test
+    void testStaleEmailKeyIsNotServedAfterIdEviction() {
+        findByEmail("john.doe@example.com").block();
+        // Simulate the id entry being evicted before the email changed, leaving only the email key behind
+        cache.idCache().invalidate(1L);
+        database.put(1L, user(1L, "john.smith@example.com"));
+
+        assertNull(findByEmail("john.doe@example.com").block());
+    }
+
+    @Test
+    void testInvalidationDuringEmailLoadIsNotUndone() throws Exception {
+        // The email load reads the user, then an update commits and invalidates it before the load completes
+        CompletableFuture<User> inFlight = findByEmail("john.doe@example.com").toFuture();
+        database.put(1L, user(1L, "john.smith@example.com"));
+        cache.invalidate(1L);
+        assertEquals("john.doe@example.com", inFlight.get(5, TimeUnit.SECONDS).getEmail());
+
+        assertEquals("john.smith@example.com", findById(1L).block().getEmail());
+        assertNull(findByEmail("john.doe@example.com").block());
+        assertEquals(1, idLoads.get());
+    }
+
+    @Test
+    void testMissingUsersAreNotCached() {
+        assertNull(findById(99L).block());
+        assertNull(findById(99L).block());
+        assertEquals(2, idLoads.get());
+    }
+
+    private Mono<User> findById(Long id) {
+        return cache.getById(id, this::loadById);
+    }
+
+    private Mono<User> findByEmail(String email) {
+        return cache.getByEmail(email, this::loadByEmail, this::loadById);
+    }
+
+    private Mono<User> loadById(Long id) {
+        return Mono.defer(() -> {
+            idLoads.incrementAndGet();
+            return Mono.justOrEmpty(database.get(id));
+        }).delayElement(Duration.ofMillis(20));
+    }
+
+    private Mono<User> loadByEmail(String email) {
+        return Mono.defer(() -> {
+            emailLoads.incrementAndGet();
+            return Mono.justOrEmpty(database.values().stream().filter(u -> email.equals(u.getEmail())).findFirst());
+        }).delayElement(Duration.ofMillis(20));
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+}
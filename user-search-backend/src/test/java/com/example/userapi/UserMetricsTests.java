@@ -0,0 +1,35 @@
+package com.example.userapi;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class UserMetricsTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void testPrometheusEndpointExposesLatencyAndSearchMeters() {
+        webTestClient.get().uri("/api/users?limit=5").exchange().expectStatus().isOk();
+        webTestClient.get().uri("/api/users/search?query=zzzz").exchange();
+
+        String scrape = webTestClient.get().uri("/actuator/prometheus").exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertNotNull(scrape);
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket"));
+        assertTrue(scrape.contains("spring_data_repository_invocations_seconds_bucket"));
+        assertTrue(scrape.contains("method=\"findPage\""));
+        assertTrue(scrape.contains("users_search_results_users_bucket"));
+        assertTrue(scrape.contains("users_import_rows_total"));
+        assertTrue(scrape.contains("cache_gets_total{cache=\"users.by-id\""));
+    }
+}
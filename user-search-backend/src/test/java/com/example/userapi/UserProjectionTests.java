@@ -0,0 +1,129 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserProjection;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.search.UserIndexer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class UserProjectionTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserIndexer userIndexer;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("DELETE FROM users").then().block();
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            users.add(new User(id, "Projected" + id, "Last" + id, null, 20 + (int) id, "female",
+                    "projected" + id + "@example.com", null, "projected" + id, "secret", null, null, null,
+                    null, null, null, null,
+                    new User.Address("1 Main St", "Austin", "Texas", "TX", "73301",
+                            new User.Coordinates(30.5, -97.7), "United States"),
+                    null, null, null, "123-45-" + id, null, id % 2 == 0 ? "admin" : "user"));
+        }
+        userRepository.upsertAll(users).block();
+        userIndexer.rebuild().block();
+    }
+
+    @Test
+    void testParseExpandsNestedPrefixesAndAlwaysIncludesId() {
+        UserProjection projection = UserProjection.parse("email, address.coordinates");
+        assertEquals(List.of("id", "email", "lat", "lng"), projection.getColumnNames());
+        assertSame(UserProjection.SUMMARY, UserProjection.parse("summary"));
+        assertEquals(38, UserProjection.parse("full").getColumns().size());
+    }
+
+    @Test
+    void testFuzzySearchRejectsPagingAndFields() {
+        webTestClient.get().uri("/api/users/search?query=projectd1&fuzzy=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].id").isEqualTo(1);
+        // Each of these used to match two handlers and fail with 500
+        webTestClient.get().uri("/api/users/search?query=projectd1&fuzzy=1&limit=5")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/users/search?query=projectd1&fuzzy=1&fields=email")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/api/users/search?query=projected&limit=2&fields=email")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.items.length()").isEqualTo(2);
+    }
+
+    @Test
+    void testSearchReturnsOnlyRequestedFields() {
+        List<Map<String, Object>> users = webTestClient.get()
+                .uri("/api/users/search?query=projected&fields=firstName,address.city")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Map.class).returnResult().getResponseBody()
+                .stream().map(user -> (Map<String, Object>) user).toList();
+
+        assertEquals(5, users.size());
+        Map<String, Object> user = users.get(0);
+        assertEquals(List.of("id", "firstName", "address"), List.copyOf(user.keySet()));
+        assertEquals(Map.of("city", "Austin"), user.get("address"));
+    }
+
+    @Test
+    void testProjectedPagesCarryTheSortKeyForTheCursor() {
+        Map<?, ?> first = webTestClient.get()
+                .uri("/api/users?limit=2&sort=age,desc&role=user&fields=email")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Map.class).returnResult().getResponseBody();
+
+        assertNotNull(first);
+        List<?> items = (List<?>) first.get("items");
+        assertEquals(2, items.size());
+        assertEquals(Map.of("id", 5, "email", "projected5@example.com", "age", 25), items.get(0));
+
+        Map<?, ?> second = webTestClient.get()
+                .uri(builder -> builder.path("/api/users").queryParam("limit", 2).queryParam("sort", "age,desc")
+                        .queryParam("role", "user").queryParam("fields", "email")
+                        .queryParam("after", first.get("nextCursor")).build())
+                .exchange()
+                .expectBody(Map.class).returnResult().getResponseBody();
+
+        assertNotNull(second);
+        assertEquals(1, ((List<?>) second.get("items")).size());
+        assertNull(second.get("nextCursor"));
+    }
+
+    @Test
+    void testFindProjectsTheCachedUser() {
+        webTestClient.get().uri("/api/users/find?id=3&fields=summary")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.username").isEqualTo("projected3")
+                .jsonPath("$.ssn").isEqualTo("123-45-3")
+                .jsonPath("$.password").doesNotExist()
+                .jsonPath("$.address").doesNotExist();
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.repository.UserSyncStore;
+import com.example.userapi.service.UserSnapshotService;
+import com.example.userapi.snapshot.UserSnapshotReader;
+import com.example.userapi.snapshot.UserSnapshotWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class UserSnapshotTests {
+
+    @TempDir
+    static Path snapshotDirectory;
+
+    @Autowired
+    private UserSnapshotService userSnapshotService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSyncStore syncStore;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @DynamicPropertySource
+    static void snapshotPath(DynamicPropertyRegistry registry) {
+        registry.add("users.snapshot.path", () -> snapshotDirectory.resolve("users.snapshot").toString());
+    }
+
+    @BeforeEach
+    void setUp() {
+        clear();
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            users.add(new User(id, "Snap" + id, "Last" + id, null, (int) (20 + id), "female", "snap" + id + "@example.com",
+                    null, "snap" + id, null, null, null, null, null, 170.5, null, null,
+                    new User.Address("1 Main St", "Zürich", null, null, "8001",
+                            new User.Coordinates(47.37, 8.54), "Switzerland"),
+                    null, id % 2 == 0 ? new User.Company("Engineering", "Acme", "Developer") : null, null,
+                    "123-45-" + id, null, "user"));
+        }
+        userRepository.upsertAll(users).block();
+        syncStore.markSeen(Map.of(1L, 11L, 2L, 22L), 3).block();
+        syncStore.saveCheckpoint(new UserSyncStore.Checkpoint(3, 0, true)).block();
+    }
+
+    @Test
+    void testSnapshotRestoresUsersAndSyncState() {
+        List<User> expected = sorted(userRepository.findAll().collectList().block());
+        UserSnapshotService.SnapshotInfo info = userSnapshotService.writeSnapshot().block();
+        assertNotNull(info);
+        assertEquals(40, info.users());
+        assertTrue(info.bytes() > 0);
+
+        clear();
+        assertEquals(40L, userSnapshotService.restore().block());
+
+        assertEquals(expected, sorted(userRepository.findAll().collectList().block()));
+        assertEquals(Map.of(1L, 11L, 2L, 22L), syncStore.hashes(List.of(1L, 2L, 3L)).block());
+        assertEquals(new UserSyncStore.Checkpoint(3, 0, true), syncStore.checkpoint().block());
+
+        // A database that already holds users is not overwritten
+        assertEquals(0L, userSnapshotService.restore().block());
+    }
+
+    @Test
+    void testCorruptSnapshotIsRejected() throws IOException {
+        UserSnapshotService.SnapshotInfo info = userSnapshotService.writeSnapshot().block();
+        assertNotNull(info);
+        Path path = Path.of(info.path());
+        try (UserSnapshotReader reader = UserSnapshotReader.open(path)) {
+            assertEquals(40, reader.count());
+            assertEquals(3, reader.syncRunId());
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(Files.size(path) - 1);
+            int last = file.read();
+            file.seek(Files.size(path) - 1);
+            file.write(last ^ 0xff);
+        }
+        IOException error = assertThrows(IOException.class, () -> UserSnapshotReader.open(path));
+        assertTrue(error.getMessage().contains("checksum"));
+    }
+
+    @Test
+    void testSnapshotLargerThanAReaderAcceptsIsNotCommitted() throws IOException {
+        UserSnapshotService.SnapshotInfo info = userSnapshotService.writeSnapshot().block();
+        assertNotNull(info);
+        Path path = Path.of(info.path());
+        List<User> users = userRepository.findAll().collectList().block();
+        assertNotNull(users);
+
+        try (UserSnapshotWriter writer = UserSnapshotWriter.create(path, 3, 1024)) {
+            IOException error = assertThrows(IOException.class, () -> {
+                for (User user : users) {
+                    writer.write(user, null);
+                }
+            });
+            assertTrue(error.getMessage().contains("exceed 1024 bytes"));
+            assertTrue(writer.count() > 0 && writer.count() < users.size());
+        }
+
+        // The oversized snapshot is discarded and the previous one is still readable
+        assertFalse(Files.exists(path.resolveSibling(path.getFileName() + ".tmp")));
+        try (UserSnapshotReader reader = UserSnapshotReader.open(path)) {
+            assertEquals(40, reader.count());
+        }
+    }
+
+    private void clear() {
+        databaseClient.sql("DELETE FROM users").then().block();
+        databaseClient.sql("DELETE FROM user_sync_hashes").then().block();
+        databaseClient.sql("DELETE FROM sync_checkpoint").then().block();
+    }
+
+    private static List<User> sorted(List<User> users) {
+        assertNotNull(users);
+        return users.stream().sorted(Comparator.comparing(User::getId)).toList();
+    }
+}
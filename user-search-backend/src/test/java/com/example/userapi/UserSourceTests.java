@@ -0,0 +1,151 @@
+package com.example.userapi;
+
+import com.example.userapi.importer.UserJsonStreamParser;
+import com.example.userapi.importer.UserSource;
+import com.example.userapi.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserSourceTests {
+
+    private static final int TOTAL_USERS = 23;
+
+    // Configured like Spring Boot's mapper, which ignores the extra fields of the source payload
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<String> requestedQueries = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    // Local stand-in for the dummyjson users API, answering ?limit=&skip= with chunked responses
+    @BeforeEach
+    void startStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/users", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            requestedQueries.add(query);
+            int limit = Integer.parseInt(param(query, "limit"));
+            int skip = Integer.parseInt(param(query, "skip"));
+            byte[] body = page(skip, limit, TOTAL_USERS).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < body.length; i += 50) {
+                    out.write(body, i, Math.min(50, body.length - i));
+                    out.flush();
+                }
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStubServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void testStreamUsersPagesThroughSource() {
+        UserSource source = new UserSource(WebClient.builder(),
+                "http://localhost:" + server.getAddress().getPort() + "/users", 10);
+        ReflectionTestUtils.setField(source, "objectMapper", objectMapper);
+
+        List<User> users = source.streamUsers().collectList().block();
+
+        assertNotNull(users);
+        assertEquals(TOTAL_USERS, users.size());
+        for (int i = 0; i < TOTAL_USERS; i++) {
+            assertEquals(i + 1, users.get(i).getId());
+        }
+        assertEquals("Austin", users.get(0).getAddress().getCity());
+        assertEquals(List.of("limit=10&skip=0", "limit=10&skip=10", "limit=10&skip=20"), requestedQueries);
+    }
+
+    @Test
+    void testManyPagesStreamInLinearTime() {
+        int total = 5_000;
+        // Pages are answered in-process, so the time measured is the paging itself rather than TCP round trips
+        WebClient.Builder pages = WebClient.builder().exchangeFunction(request -> {
+            String query = request.url().getQuery();
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header("Content-Type", "application/json")
+                    .body(page(Integer.parseInt(param(query, "skip")), Integer.parseInt(param(query, "limit")), total))
+                    .build());
+        });
+        UserSource source = new UserSource(pages, "http://source/users", 1);
+        ReflectionTestUtils.setField(source, "objectMapper", objectMapper);
+
+        // One page per user: nesting every page into the previous one overflows the stack or takes minutes here
+        List<Long> ids = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> source.streamUsers().map(User::getId).collectList().block());
+        assertEquals(total, ids.size());
+        assertEquals(total, ids.get(total - 1));
+
+        List<UserSource.Page> resumed = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> source.streamPages(1_000).collectList().block());
+        assertEquals(total - 1_000, resumed.size());
+        assertEquals(total, resumed.get(resumed.size() - 1).nextSkip());
+    }
+
+    @Test
+    void testParserHandlesDocumentSplitAtEveryByte() throws IOException {
+        byte[] document = page(0, 5, TOTAL_USERS).getBytes(StandardCharsets.UTF_8);
+        UserJsonStreamParser parser = new UserJsonStreamParser(objectMapper);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < document.length; i++) {
+            users.addAll(parser.feed(document, i, 1));
+        }
+        users.addAll(parser.endOfInput());
+
+        assertEquals(5, users.size());
+        assertEquals("First3", users.get(2).getFirstName());
+        assertEquals(TOTAL_USERS, parser.getTotal());
+    }
+
+    private static String page(int skip, int limit, int total) {
+        StringBuilder json = new StringBuilder("{\"users\":[");
+        int end = Math.min(total, skip + limit);
+        for (int id = skip + 1; id <= end; id++) {
+            if (id > skip + 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(id)
+                    .append(",\"firstName\":\"First").append(id).append('"')
+                    .append(",\"lastName\":\"Last").append(id).append('"')
+                    .append(",\"hair\":{\"color\":\"Brown\",\"type\":\"Curly\"}")
+                    .append(",\"address\":{\"city\":\"Austin\",\"coordinates\":{\"lat\":30.2,\"lng\":-97.7}}")
+                    .append(",\"tags\":[1,[2,3],{\"x\":null}]}");
+        }
+        return json.append("],\"total\":").append(total)
+                .append(",\"skip\":").append(skip)
+                .append(",\"limit\":").append(limit).append('}').toString();
+    }
+
+    private static String param(String query, String name) {
+        for (String pair : query.split("&")) {
+            String[] parts = pair.split("=", 2);
+            if (parts[0].equals(name)) {
+                return parts[1];
+            }
+        }
+        throw new IllegalArgumentException("Missing query parameter " + name);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.search.UserIndexer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.FluxExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class UserStreamingTests {
+
+    private static final int USERS = 1_200;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserIndexer userIndexer;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("DELETE FROM users").then().block();
+        List<User> users = new ArrayList<>(USERS);
+        for (long id = 1; id <= USERS; id++) {
+            users.add(new User(id, "Streamed" + id, "Last" + id, null, 30, null, "streamed" + id + "@example.com",
+                    null, "streamed" + id, null, null, null, null, null, null, null,
+                    new User.Hair("Brown", "Curly"), null, null, null, null, "123-45-" + id, null, "user"));
+        }
+        userRepository.upsertAll(users).block();
+        userIndexer.rebuild().block();
+    }
+
+    @Test
+    void testAllUsersStreamAsNdjsonInIdOrder() {
+        FluxExchangeResult<User> result = webTestClient.get().uri("/api/users")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(User.class);
+
+        List<User> users = result.getResponseBody().collectList().block();
+        assertNotNull(users);
+        assertEquals(USERS, users.size());
+        assertEquals(1L, users.get(0).getId());
+        assertEquals(USERS, users.get(USERS - 1).getId());
+        assertEquals("Curly", users.get(0).getHair().getType());
+    }
+
+    @Test
+    void testProjectedSearchStreamsAsServerSentEvents() {
+        FluxExchangeResult<ServerSentEvent<Map<String, Object>>> result = webTestClient.get()
+                .uri("/api/users/search?query=streamed11&fields=email")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(new ParameterizedTypeReference<>() {
+                });
+
+        List<ServerSentEvent<Map<String, Object>>> events = result.getResponseBody().collectList().block();
+        assertNotNull(events);
+        // streamed11 and streamed110-119 and streamed1100-1199
+        assertEquals(111, events.size());
+        assertTrue(events.stream().allMatch(event -> event.data().keySet().equals(Set.of("id", "email"))));
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.userapi;
+
+import com.example.userapi.importer.ImportProgress;
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.search.UserIndexer;
+import com.example.userapi.service.UserSyncService;
+import com.example.userapi.service.WriteJobLock;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"users.import.page-size=10", "users.sync.concurrency=2"})
+public class UserSyncTests {
+
+    private static final HttpServer server = startStubServer();
+
+    // Source users by id (first name only), the queries the stub answered and the skip it fails at, if any
+    private static final Map<Long, String> sourceUsers = new ConcurrentSkipListMap<>();
+    private static final List<String> requestedQueries = new CopyOnWriteArrayList<>();
+    private static volatile int failAtSkip = -1;
+
+    @Autowired
+    private UserSyncService userSyncService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserIndexer userIndexer;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private WriteJobLock writeJobLock;
+
+    @Autowired
+    private ImportProgress importProgress;
+
+    @DynamicPropertySource
+    static void sourceUrl(DynamicPropertyRegistry registry) {
+        registry.add("users.api.url", () -> "http://localhost:" + server.getAddress().getPort() + "/users");
+    }
+
+    @AfterAll
+    static void stopStubServer() {
+        server.stop(0);
+    }
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("DELETE FROM users").then().block();
+        databaseClient.sql("DELETE FROM user_sync_hashes").then().block();
+        databaseClient.sql("DELETE FROM sync_checkpoint").then().block();
+        userIndexer.rebuild().block();
+        sourceUsers.clear();
+        for (long id = 1; id <= 23; id++) {
+            sourceUsers.put(id, "First" + id);
+        }
+        requestedQueries.clear();
+        failAtSkip = -1;
+    }
+
+    @Test
+    void testSecondRunOnlyWritesChangesAndTombstones() {
+        UserSyncService.SyncResult first = userSyncService.sync().block();
+        assertNotNull(first);
+        assertEquals(23, first.inserted());
+        assertEquals(23L, userRepository.count().block());
+
+        sourceUsers.put(5L, "Renamed");
+        sourceUsers.remove(23L);
+        UserSyncService.SyncResult second = userSyncService.sync().block();
+
+        assertNotNull(second);
+        assertEquals(first.runId() + 1, second.runId());
+        assertEquals(0, second.inserted());
+        assertEquals(1, second.updated());
+        assertEquals(21, second.unchanged());
+        assertEquals(1, second.deleted());
+        User renamed = userRepository.findById(5L).block();
+        assertNotNull(renamed);
+        assertEquals("Renamed", renamed.getFirstName());
+        assertNull(userRepository.findById(23L).block());
+
+        UserSyncService.SyncResult third = userSyncService.sync().block();
+        assertNotNull(third);
+        assertEquals(22, third.unchanged());
+        assertEquals(0, third.inserted() + third.updated() + third.deleted());
+    }
+
+    @Test
+    void testSyncExcludesImportsWithoutCountingAsOne() {
+        writeJobLock.acquire(WriteJobLock.Job.IMPORT);
+        try {
+            ResponseStatusException conflict = assertThrows(ResponseStatusException.class,
+                    () -> userSyncService.sync().block());
+            assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+            assertEquals("An import is already running", conflict.getReason());
+        } finally {
+            writeJobLock.release(WriteJobLock.Job.IMPORT);
+        }
+
+        long imported = importProgress.snapshot().importedUsers();
+        assertEquals(23, userSyncService.sync().block().inserted());
+        assertEquals(imported, importProgress.snapshot().importedUsers());
+        assertFalse(importProgress.snapshot().running());
+    }
+
+    @Test
+    void testInterruptedRunResumesFromCheckpoint() {
+        failAtSkip = 20;
+        assertThrows(RuntimeException.class, () -> userSyncService.sync().block());
+
+        failAtSkip = -1;
+        requestedQueries.clear();
+        UserSyncService.SyncResult resumed = userSyncService.sync().block();
+
+        assertNotNull(resumed);
+        assertTrue(resumed.resumedFromSkip() > 0);
+        assertEquals("limit=10&skip=" + resumed.resumedFromSkip(), requestedQueries.get(0));
+        assertFalse(requestedQueries.contains("limit=10&skip=0"));
+        assertEquals(23L, userRepository.count().block());
+
+        // The next run starts over and finds nothing to write
+        UserSyncService.SyncResult next = userSyncService.sync().block();
+        assertNotNull(next);
+        assertEquals(resumed.runId() + 1, next.runId());
+        assertEquals(0, next.resumedFromSkip());
+        assertEquals(23, next.unchanged());
+    }
+
+    // Local stand-in for the users API, answering ?limit=&skip= from sourceUsers
+    private static HttpServer startStubServer() {
+        try {
+            HttpServer stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            stub.createContext("/users", exchange -> {
+                String query = exchange.getRequestURI().getQuery();
+                requestedQueries.add(query);
+                int limit = Integer.parseInt(param(query, "limit"));
+                int skip = Integer.parseInt(param(query, "skip"));
+                if (skip == failAtSkip) {
+                    exchange.sendResponseHeaders(500, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = page(skip, limit).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            stub.start();
+            return stub;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String page(int skip, int limit) {
+        List<Map.Entry<Long, String>> users = List.copyOf(sourceUsers.entrySet());
+        StringBuilder json = new StringBuilder("{\"users\":[");
+        for (int i = skip; i < Math.min(users.size(), skip + limit); i++) {
+            if (i > skip) {
+                json.append(',');
+            }
+            long id = users.get(i).getKey();
+            json.append("{\"id\":").append(id)
+                    .append(",\"firstName\":\"").append(users.get(i).getValue()).append('"')
+                    .append(",\"lastName\":\"Last").append(id).append('"')
+                    .append(",\"email\":\"sync").append(id).append("@example.com\"")
+                    .append(",\"address\":{\"city\":\"Austin\",\"coordinates\":{\"lat\":30.2,\"lng\":-97.7}}}");
+        }
+        return json.append("],\"total\":").append(users.size())
+                .append(",\"skip\":").append(skip)
+                .append(",\"limit\":").append(limit).append('}').toString();
+    }
+
+    private static String param(String query, String name) {
+        for (String pair : query.split("&")) {
+            String[] parts = pair.split("=", 2);
+            if (parts[0].equals(name)) {
+                return parts[1];
+            }
+        }
+        throw new IllegalArgumentException("Missing query parameter " + name);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.userapi;
+
+import com.example.userapi.model.User;
+import com.example.userapi.repository.UserRepository;
+import com.example.userapi.search.UserIndexer;
+import com.example.userapi.service.WriteJobLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class UserWriteTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserIndexer userIndexer;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private WriteJobLock writeJobLock;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("DELETE FROM users").then().block();
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            users.add(new User(id, "Writer" + id, "Last" + id, null, 30, "male", "writer" + id + "@example.com",
+                    null, "writer" + id, null, null, null, null, null, null, null, null,
+                    new User.Address("1 Main St", "Austin", "Texas", "TX", null, null, "United States"),
+                    null, new User.Company("Engineering", "Acme", "Developer"), null, "123-45-" + id, null, "user"));
+        }
+        userRepository.upsertAll(users).block();
+        userIndexer.rebuild().block();
+    }
+
+    @Test
+    void testPutAndPatchWriteEmbeddedColumnsAndReindex() {
+        User replacement = userRepository.findById(1L).block();
+        assertNotNull(replacement);
+        replacement.getAddress().setCity("Boston");
+        webTestClient.put().uri("/api/users/1").bodyValue(replacement)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.address.city").isEqualTo("Boston");
+
+        webTestClient.patch().uri("/api/users/1")
+                .bodyValue(Map.of("firstName", "Patched", "company", Map.of("department", "Legal")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo("Patched")
+                .jsonPath("$.lastName").isEqualTo("Last1")
+                .jsonPath("$.address.city").isEqualTo("Boston")
+                .jsonPath("$.company.department").isEqualTo("Legal");
+
+        webTestClient.get().uri("/api/users/search?query=patched")
+                .exchange()
+                .expectBody().jsonPath("$[0].id").isEqualTo(1);
+        webTestClient.patch().uri("/api/users/99").bodyValue(Map.of("firstName", "Nobody"))
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("User not found with ID: 99");
+    }
+
+    @Test
+    void testPatchWithNullNestedObjectClearsItsColumns() {
+        Map<String, Object> body = new HashMap<>();
+        body.put("address", null);
+        body.put("company", Collections.singletonMap("title", null));
+        webTestClient.patch().uri("/api/users/2").bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.address.city").doesNotExist()
+                .jsonPath("$.company.department").isEqualTo("Engineering")
+                .jsonPath("$.company.title").doesNotExist();
+        // Embedded objects are read back empty rather than null once all their columns are null
+        User patched = userRepository.findById(2L).block();
+        assertNotNull(patched);
+        assertNull(patched.getAddress().getAddress());
+        assertNull(patched.getAddress().getCity());
+        assertNull(patched.getAddress().getCountry());
+        assertEquals("Writer2", patched.getFirstName());
+
+        webTestClient.patch().uri("/api/users/2").bodyValue(Collections.singletonMap("nickname", null))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Error: Unknown field: nickname");
+    }
+
+    @Test
+    void testStartupIndexBuildFinishesBeforeTheRunnerReturns() {
+        // Rows written behind the indexes' back, as by a snapshot restore, are searchable once the runner returns
+        User restored = new User();
+        restored.setId(6L);
+        restored.setFirstName("Restored");
+        userRepository.upsertAll(List.of(restored)).block();
+
+        userIndexer.run(null);
+        webTestClient.get().uri("/api/users/search?query=RESTORED")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].id").isEqualTo(6);
+    }
+
+    @Test
+    void testErrorsAreAnsweredWithTheirStatus() {
+        for (String uri : List.of("/api/users?limit=0", "/api/users?limit=2&after=garbage",
+                "/api/users?limit=2&sort=bogus")) {
+            webTestClient.get().uri(uri)
+                    .exchange()
+                    .expectStatus().isBadRequest()
+                    .expectBody(String.class).value(body -> assertTrue(body.startsWith("Error: "), body));
+        }
+        webTestClient.get().uri("/api/users/find?id=999999")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("User not found with ID: 999999");
+        webTestClient.delete().uri("/api/users/999999")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        writeJobLock.acquire(WriteJobLock.Job.IMPORT);
+        try {
+            webTestClient.post().uri("/api/users/sync")
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                    .expectBody(String.class).isEqualTo("Error: An import is already running");
+        } finally {
+            writeJobLock.release(WriteJobLock.Job.IMPORT);
+        }
+        webTestClient.post().uri("/api/users/snapshot")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void testBatchEndpointsReportMissingIds() {
+        webTestClient.post().uri("/api/users/batch-update")
+                .bodyValue(List.of(Map.of("id", 2, "role", "admin"), Map.of("id", 3, "role", "admin"),
+                        Map.of("id", 42, "role", "admin")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.affected").isEqualTo(2)
+                .jsonPath("$.notFound[0]").isEqualTo(42);
+        assertEquals("admin", userRepository.findById(3L).map(User::getRole).block());
+
+        webTestClient.post().uri("/api/users/batch-delete")
+                .bodyValue(List.of(1, 2, 77))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.affected").isEqualTo(2)
+                .jsonPath("$.notFound[0]").isEqualTo(77);
+        assertEquals(3L, userRepository.count().block());
+    }
+}
@@ -4,33 +4,74 @@ import { Container, Row, Col, Form, Button, Table, Dropdown, DropdownButton } fr
 import { FaSearch } from 'react-icons/fa';
 
 const API_URL = 'http://localhost:8080/api/users/search';
+const FACETS_URL = 'http://localhost:8080/api/users/facets';
+const DEFAULT_ROLES = ['admin', 'user', 'moderator'];
+const PAGE_SIZE = 50;
 
 function App() {
   const [query, setQuery] = useState('');
   const [users, setUsers] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [searched, setSearched] = useState(false);
   const [loading, setLoading] = useState(false);
   const [selectedRole, setSelectedRole] = useState('');
-  const [sortConfig, setSortConfig] = useState({ key: 'name', direction: 'asc' });
+  const [sortConfig, setSortConfig] = useState({ key: 'firstName', direction: 'asc' });
+  const [roleCounts, setRoleCounts] = useState(null);
 
   const handleSearchInputChange = (e) => {
     setQuery(e.target.value);
   };
 
-  const handleSearch = async () => {
-    if (query.length >= 0) {
-      setLoading(true);
-      try {
-        const response = await axios.get(API_URL, { params: { query } });
-        setUsers(response.data);
-      } catch (error) {
-        console.error('Error fetching users:', error);
+  // Role filtering, sorting and paging are done by the server; "after" continues from a previous page.
+  // Only the columns shown in the table are requested (fields=summary)
+  const fetchUsers = async ({ role = selectedRole, sort = sortConfig, after = null } = {}) => {
+    setLoading(true);
+    try {
+      const params = { query, limit: PAGE_SIZE, sort: `${sort.key},${sort.direction}`, fields: 'summary' };
+      if (role) {
+        params.role = role;
       }
-      setLoading(false);
+      if (after) {
+        params.after = after;
+      }
+      const response = await axios.get(API_URL, { params });
+      const page = response.data && Array.isArray(response.data.items) ? response.data : { items: [], nextCursor: null };
+      setUsers(after ? (previous) => [...previous, ...page.items] : page.items);
+      setNextCursor(page.nextCursor || null);
+    } catch (error) {
+      console.error('Error fetching users:', error);
+    }
+    setLoading(false);
+  };
+
+  // The role dropdown lists the roles that exist, with their counts among the current search matches
+  const fetchRoleCounts = async (search = '') => {
+    try {
+      const params = search ? { query: search } : {};
+      const response = await axios.get(FACETS_URL, { params });
+      const roles = response.data && response.data.role;
+      setRoleCounts(roles && typeof roles === 'object' && !Array.isArray(roles) ? roles : null);
+    } catch (error) {
+      console.error('Error fetching facets:', error);
     }
   };
 
+  useEffect(() => {
+    fetchRoleCounts();
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, []);
+
+  const handleSearch = () => {
+    setSearched(true);
+    fetchUsers();
+    fetchRoleCounts(query);
+  };
+
   const handleRoleFilter = (role) => {
     setSelectedRole(role);
+    if (searched) {
+      fetchUsers({ role });
+    }
   };
 
   const handleSort = (key) => {
@@ -38,23 +79,16 @@ function App() {
     if (sortConfig.key === key && sortConfig.direction === 'asc') {
       direction = 'desc';
     }
-    setSortConfig({ key, direction });
+    const sort = { key, direction };
+    setSortConfig(sort);
+    if (searched) {
+      fetchUsers({ sort });
+    }
   };
 
-  const filteredAndSortedUsers = users
-    .filter(user => (selectedRole ? user.role === selectedRole : true))
-    .sort((a, b) => {
-      if (sortConfig.key) {
-        const aValue = a[sortConfig.key] || '';
-        const bValue = b[sortConfig.key] || '';
-        if (sortConfig.direction === 'asc') {
-          return aValue > bValue ? 1 : -1;
-        } else {
-          return aValue < bValue ? 1 : -1;
-        }
-      }
-      return 0;
-    });
+  const handleLoadMore = () => {
+    fetchUsers({ after: nextCursor });
+  };
 
   return (
     <Container className="mt-5" style={{ backgroundColor: '#F4F7FC', padding: '30px', borderRadius: '12px', boxShadow: '0px 10px 20px rgba(0, 0, 0, 0.1)' }}>
@@ -118,14 +152,17 @@ function App() {
             style={{ borderRadius: '30px' }}
           >
             <Dropdown.Item eventKey="">All</Dropdown.Item>
-            <Dropdown.Item eventKey="admin">Admin</Dropdown.Item>
-            <Dropdown.Item eventKey="user">User</Dropdown.Item>
-            <Dropdown.Item eventKey="moderator">Moderator</Dropdown.Item>
+            {(roleCounts ? Object.keys(roleCounts) : DEFAULT_ROLES).map((role) => (
+              <Dropdown.Item key={role} eventKey={role}>
+                {role.charAt(0).toUpperCase() + role.slice(1)}
+                {roleCounts ? ` (${roleCounts[role]})` : ''}
+              </Dropdown.Item>
+            ))}
           </DropdownButton>
         </Col>
       </Row>
 
-      {loading ? (
+      {loading && users.length === 0 ? (
         <Row className="mt-5">
           <Col className="text-center">
             <h4>Loading...</h4>
@@ -155,12 +192,12 @@ function App() {
                 </tr>
               </thead>
               <tbody>
-                {filteredAndSortedUsers.length === 0 ? (
+                {users.length === 0 ? (
                   <tr>
                     <td colSpan="5" className="text-center">No users found.</td>
                   </tr>
                 ) : (
-                  filteredAndSortedUsers.map((user) => (
+                  users.map((user) => (
                     <tr key={user.id} style={{ cursor: 'pointer' }} onMouseOver={(e) => e.target.style.backgroundColor = '#f4f7ff'} onMouseOut={(e) => e.target.style.backgroundColor = ''}>
                       <td>{`${user.firstName} ${user.lastName}`}</td>
                       <td>{user.age}</td>
@@ -172,6 +209,13 @@ function App() {
                 )}
               </tbody>
             </Table>
+            {nextCursor && (
+              <div className="text-center">
+                <Button onClick={handleLoadMore} variant="outline-primary" disabled={loading} style={{ borderRadius: '30px' }}>
+                  {loading ? 'Loading...' : 'Load more'}
+                </Button>
+              </div>
+            )}
           </Col>
         </Row>
       )}
@@ -20,7 +20,7 @@ describe('App Component', () => {
 
   test('loads and displays user data when search button is clicked', async () => {
     const mockResponse = {
-      data: [
+      data: { nextCursor: null, items: [
         {
           id: 1,
           firstName: 'John',
@@ -30,7 +30,7 @@ describe('App Component', () => {
           email: 'john.doe@example.com',
           ssn: '123-45-6789',
         },
-      ],
+      ] },
     };
 
     axios.get.mockResolvedValue(mockResponse);
@@ -60,7 +60,7 @@ describe('App Component', () => {
 
   test('filters users by role', async () => {
     const mockResponse = {
-      data: [
+      data: { nextCursor: null, items: [
         {
           id: 1,
           firstName: 'John',
@@ -79,10 +79,13 @@ describe('App Component', () => {
           email: 'jane.doe@example.com',
           ssn: '987-65-4321',
         },
-      ],
+      ] },
     };
 
-    axios.get.mockResolvedValue(mockResponse);
+    // The role filter is applied server-side, so the mock honours the role query parameter
+    axios.get.mockImplementation((url, { params }) => Promise.resolve({
+      data: { ...mockResponse.data, items: mockResponse.data.items.filter(user => !params.role || user.role === params.role) },
+    }));
 
     render(<App />);
 
@@ -105,7 +108,7 @@ describe('App Component', () => {
 
   test('sorts users by name', async () => {
     const mockResponse = {
-      data: [
+      data: { nextCursor: null, items: [
         {
           id: 1,
           firstName: 'John',
@@ -124,7 +127,7 @@ describe('App Component', () => {
           email: 'jane.doe@example.com',
           ssn: '987-65-4321',
         },
-      ],
+      ] },
     };
 
     axios.get.mockResolvedValue(mockResponse);
@@ -144,7 +147,7 @@ describe('App Component', () => {
   });
 
   test('displays no users found message when no results match', async () => {
-    const mockResponse = { data: [] };
+    const mockResponse = { data: { items: [], nextCursor: null } };
     axios.get.mockResolvedValue(mockResponse);
 
     render(<App />);
@@ -160,7 +163,7 @@ describe('App Component', () => {
 
   test('shows filtered users when role is selected', async () => {
     const mockResponse = {
-      data: [
+      data: { nextCursor: null, items: [
         {
           id: 1,
           firstName: 'AdminUser',
@@ -179,10 +182,13 @@ describe('App Component', () => {
           email: 'normal@example.com',
           ssn: '444-55-6666',
         },
-      ],
+      ] },
     };
 
-    axios.get.mockResolvedValue(mockResponse);
+    // The role filter is applied server-side, so the mock honours the role query parameter
+    axios.get.mockImplementation((url, { params }) => Promise.resolve({
+      data: { ...mockResponse.data, items: mockResponse.data.items.filter(user => !params.role || user.role === params.role) },
+    }));
 
     render(<App />);
 
@@ -202,4 +208,20 @@ describe('App Component', () => {
       expect(adminUserName).not.toBeInTheDocument();  // Ensure the admin user is not shown
     });
   });
+
+  test('populates the role filter from facet counts', async () => {
+    axios.get.mockImplementation((url) => Promise.resolve(url.endsWith('/facets')
+      ? { data: { role: { user: 12, admin: 3, auditor: 1 } } }
+      : { data: { items: [], nextCursor: null } }));
+
+    render(<App />);
+
+    const roleFilterButton = screen.getByRole('button', { name: /Filter by Role:/i });
+    fireEvent.click(roleFilterButton);
+
+    await waitFor(() => {
+      expect(screen.getByRole('menuitem', { name: 'Auditor (1)' })).toBeInTheDocument();
+      expect(screen.getByRole('menuitem', { name: 'User (12)' })).toBeInTheDocument();
+    });
+  });
 });